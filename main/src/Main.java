@@ -3,14 +3,23 @@ import bigmood.*;
 import dataholder.District;
 import dataholder.Grade;
 import dataholder.Poll;
+import rng.RngType;
 import seer.LinearSeerModel;
 import seer.SeerModel;
+import simulation.CompiledDistricts;
+import simulation.RaceGroup;
+import simulation.Scenario;
+import simulation.SimulationSettings;
 import util.DataReader;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Random;
 import java.util.Set;
 
 /**
@@ -21,10 +30,216 @@ public class Main {
     /**
      * Main method that gets run.
      *
-     * @param args Not used.
-     * @throws IOException If a file needed somewhere is improperly formatted or missing.
+     * @param args Optional flags: --seed=N, --threads=N and --iterations=N override the random seed, every available
+     *             processor, and the million simulations. --kernel=scalar|fast|batch|table|table-linear picks how each
+     *             district is decided in the simulations, and --rng=splittable|l64x128|xoshiro256 picks the random
+     *             number generator. --majority-se=X and --seats-se=X stop the simulations early once the standard error
+     *             of the majority probability or the expected seats is at most X, checked on the baseline with
+     *             scenarios and on the House with --chamber. Neither works with --sensitivity or --shard.
+     *             --time-budget=MS stops the simulations after MS milliseconds, and doesn't work with --shard either.
+     *             --noise=monte-carlo|antithetic|stratified|sobol picks how the national noise is drawn.
+     *             --error-model=independent|hierarchical picks whether districts in the same state and region share
+     *             part of their error, with --regional-share=X and --state-share=X of the residual variance.
+     *             --national-dof=N and --district-dof=N make the national noise and the district errors Student's t
+     *             with N degrees of freedom instead of normal, with the same standard deviations. --district-dof=N only
+     *             works with --kernel=scalar|fast. --co-wins also writes how often the Democrats win each pair of
+     *             competitive districts together, and only works with plain simulations. --prune-tolerance=X prunes
+     *             districts whose win chance stays within X of 0 or 1, 0 to prune none. --vote-share samples each
+     *             district's vote share instead, and also writes the joint distribution of seats and the national
+     *             popular vote, and --quantiles does the same plus percentile bands for each district's vote share.
+     *             --tipping-point also samples vote shares, and writes how often each district delivers the majority-th
+     *             seat. --raw-draws=FILE also samples vote shares, and writes every simulation's national noise and
+     *             district vote shares to FILE as float32 columns. --analytic skips the simulations and calculates the
+     *             seat distribution exactly instead, which only works with the independent error model and normal
+     *             errors. --scenario-stdv=X and --scenario-ballot=D, which can both be repeated, add scenarios with a
+     *             national shift standard deviation of X or a generic ballot average moved by D, and simulate them
+     *             alongside the baseline against the same draws. --tail=MIN-MAX, which can be repeated, also estimates
+     *             the probability that Democrats win between MIN and MAX seats with importance sampling, using
+     *             --tail-iterations=N iterations for each, which doesn't work with --analytic or --query.
+     *             --outcomes=FILE stores every simulation's district outcomes in FILE, which only works with plain or
+     *             --shard simulations, and --query=FILE --given=PA-07:D,NJ-03:R then answers what happens if Democrats
+     *             win or lose the given districts from FILE, without reading the inputs or simulating.
+     *             --checkpoint=FILE saves the counts to FILE every --checkpoint-batches=N batches, and --resume
+     *             continues from FILE, which needs the same --seed, --threads and inputs. Both only work with plain or
+     *             --shard simulations. --progress=MS prints the simulation rate, the time left, and the majority
+     *             probability so far every MS milliseconds, and also the size and error of the win chance table for the
+     *             table kernels, and whether --kernel=batch runs on SIMD lanes. It only works with plain or --shard
+     *             simulations. --shard=K/N simulates every Nth batch starting from batch K and writes the raw counts to
+     *             shard_K.bin, which needs the same --seed, --threads and --iterations in every shard, and only works
+     *             with plain simulations. --merge=FILE,FILE,... combines the shard files of every slice into the usual
+     *             results. --chamber=NAME:FILE:MAJORITY:BASELINE[:STDEV], which can be repeated, adds a group of races
+     *             forecast in FILE (race, dem_percent, stdev, elasticity) that Democrats control with MAJORITY seats
+     *             counting BASELINE seats not up for election, and simulates it with the House against the same
+     *             national noise, scaled by the group's own national shift standard deviation STDEV, the House's by
+     *             default. With the hierarchical error model, every group also shares the same regional and state
+     *             shocks. --sensitivity writes how much of the uncertainty in the majority each competitive district
+     *             and the national noise explain, as Sobol indices with confidence intervals, using --iterations=N
+     *             sample pairs. Unknown flags are rejected, and so is picking more than one of --analytic, --vote-share
+     *             and the flags that imply it, --sensitivity, the scenario flags, --chamber, --merge and --query.
+     * @throws IOException              If a file needed somewhere is improperly formatted or missing.
+     * @throws IllegalArgumentException If the flags combine options that can't be used together.
      */
     public static void main(String[] args) throws IOException {
+        //Simulation settings, with a random seed and every available processor.
+        SimulationSettings settings = new SimulationSettings(1000000, new Random().nextLong());
+        boolean analytic = false;
+        boolean voteShare = false;
+        List<int[]> tails = new ArrayList<>();
+        List<Double> scenarioStDvs = new ArrayList<>();
+        List<Double> scenarioBallots = new ArrayList<>();
+        String queryFile = null;
+        boolean shard = false;
+        List<String[]> chambers = new ArrayList<>();
+        List<String> shardFiles = new ArrayList<>();
+        List<String> given = new ArrayList<>();
+        boolean sensitivity = false;
+        for (String arg : args) {
+            if (arg.startsWith("--seed=")) {
+                settings.setSeed(Long.parseLong(arg.substring(7)));
+            } else if (arg.startsWith("--threads=")) {
+                settings.setThreads(Integer.parseInt(arg.substring(10)));
+            } else if (arg.startsWith("--iterations=")) {
+                settings.setIterations(Long.parseLong(arg.substring(13)));
+            } else if (arg.startsWith("--kernel=")) {
+                settings.setKernelType(SimulationSettings.KernelType.parseFromString(arg.substring(9)));
+            } else if (arg.startsWith("--rng=")) {
+                settings.setRngType(RngType.parseFromString(arg.substring(6)));
+            } else if (arg.startsWith("--majority-se=")) {
+                settings.setTargetMajorityStdError(Double.parseDouble(arg.substring(14)));
+            } else if (arg.startsWith("--seats-se=")) {
+                settings.setTargetSeatsStdError(Double.parseDouble(arg.substring(11)));
+            } else if (arg.startsWith("--time-budget=")) {
+                settings.setTimeBudgetMillis(Long.parseLong(arg.substring(14)));
+            } else if (arg.startsWith("--noise=")) {
+                settings.setNoiseSampling(SimulationSettings.NoiseSampling.parseFromString(arg.substring(8)));
+            } else if (arg.startsWith("--error-model=")) {
+                settings.setErrorModel(SimulationSettings.ErrorModel.parseFromString(arg.substring(14)));
+            } else if (arg.startsWith("--regional-share=")) {
+                settings.setRegionalVarianceShare(Double.parseDouble(arg.substring(17)));
+            } else if (arg.startsWith("--state-share=")) {
+                settings.setStateVarianceShare(Double.parseDouble(arg.substring(14)));
+            } else if (arg.startsWith("--national-dof=")) {
+                settings.setNationalDegreesOfFreedom(Double.parseDouble(arg.substring(15)));
+            } else if (arg.startsWith("--district-dof=")) {
+                settings.setDistrictDegreesOfFreedom(Double.parseDouble(arg.substring(15)));
+            } else if (arg.equals("--co-wins")) {
+                settings.setCoWins(true);
+            } else if (arg.startsWith("--prune-tolerance=")) {
+                settings.setPruneTolerance(Double.parseDouble(arg.substring(18)));
+            } else if (arg.startsWith("--tail=")) {
+                String[] bounds = arg.substring(7).split("-");
+                tails.add(new int[]{Integer.parseInt(bounds[0]), Integer.parseInt(bounds[1])});
+            } else if (arg.startsWith("--tail-iterations=")) {
+                settings.setTailIterations(Integer.parseInt(arg.substring(18)));
+            } else if (arg.startsWith("--scenario-stdv=")) {
+                scenarioStDvs.add(Double.parseDouble(arg.substring(16)));
+            } else if (arg.startsWith("--scenario-ballot=")) {
+                scenarioBallots.add(Double.parseDouble(arg.substring(18)));
+            } else if (arg.equals("--vote-share")) {
+                voteShare = true;
+            } else if (arg.equals("--quantiles")) {
+                voteShare = true;
+                settings.setQuantileSketches(true);
+            } else if (arg.equals("--tipping-point")) {
+                voteShare = true;
+                settings.setTippingPoints(true);
+            } else if (arg.startsWith("--raw-draws=")) {
+                voteShare = true;
+                settings.setRawDrawFile(arg.substring(12));
+            } else if (arg.startsWith("--checkpoint=")) {
+                settings.setCheckpointFile(arg.substring(13));
+            } else if (arg.startsWith("--checkpoint-batches=")) {
+                settings.setCheckpointBatches(Integer.parseInt(arg.substring(21)));
+            } else if (arg.startsWith("--progress=")) {
+                settings.setProgressMillis(Long.parseLong(arg.substring(11)));
+            } else if (arg.equals("--resume")) {
+                settings.setResume(true);
+            } else if (arg.startsWith("--shard=")) {
+                String[] slice = arg.substring(8).split("/");
+                settings.setShard(Integer.parseInt(slice[0]), Integer.parseInt(slice[1]));
+                shard = true;
+            } else if (arg.startsWith("--merge=")) {
+                shardFiles.addAll(Arrays.asList(arg.substring(8).split(",")));
+            } else if (arg.startsWith("--chamber=")) {
+                chambers.add(arg.substring(10).split(":"));
+            } else if (arg.startsWith("--outcomes=")) {
+                settings.setOutcomeFile(arg.substring(11));
+            } else if (arg.startsWith("--query=")) {
+                queryFile = arg.substring(8);
+            } else if (arg.startsWith("--given=")) {
+                given.addAll(Arrays.asList(arg.substring(8).split(",")));
+            } else if (arg.equals("--sensitivity")) {
+                sensitivity = true;
+            } else if (arg.equals("--analytic")) {
+                analytic = true;
+            } else {
+                throw new IllegalArgumentException("Unknown flag " + arg);
+            }
+        }
+
+        //Reject combinations that a path would otherwise silently ignore, before reading any inputs.
+        if (analytic && settings.getErrorModel() != SimulationSettings.ErrorModel.INDEPENDENT) {
+            throw new IllegalArgumentException("--analytic only supports the independent error model");
+        }
+        if (analytic && !settings.isGaussian()) {
+            throw new IllegalArgumentException("--analytic only supports normal errors, not --national-dof or "
+                    + "--district-dof");
+        }
+        //At most one mode, since the chain that runs them below only runs the first one it finds.
+        boolean scenarioMode = !scenarioStDvs.isEmpty() || !scenarioBallots.isEmpty();
+        boolean[] modes = {analytic, voteShare, sensitivity, scenarioMode, !chambers.isEmpty(), !shardFiles.isEmpty(),
+                queryFile != null};
+        int modeCount = 0;
+        for (boolean mode : modes) {
+            modeCount += mode ? 1 : 0;
+        }
+        if (modeCount > 1) {
+            throw new IllegalArgumentException("Only one of --analytic, --vote-share (or a flag that implies it), "
+                    + "--sensitivity, --scenario-stdv or --scenario-ballot, --chamber, --merge and --query can be "
+                    + "used");
+        }
+        boolean otherMode = modeCount > 0;
+        if ((settings.getCheckpointFile() != null || settings.isResume()) && otherMode) {
+            throw new IllegalArgumentException("--checkpoint and --resume only work with plain or --shard simulations");
+        }
+        if (shard && otherMode) {
+            throw new IllegalArgumentException("--shard only works with plain simulations");
+        }
+        if (settings.getOutcomeFile() != null && otherMode) {
+            throw new IllegalArgumentException("--outcomes only works with plain or --shard simulations");
+        }
+        if (settings.getProgressMillis() > 0 && otherMode) {
+            throw new IllegalArgumentException("--progress only works with plain or --shard simulations");
+        }
+        if (settings.isCoWins() && (otherMode || shard)) {
+            throw new IllegalArgumentException("--co-wins only works with plain simulations");
+        }
+        if (!tails.isEmpty() && (analytic || queryFile != null)) {
+            throw new IllegalArgumentException("--tail doesn't work with --query, and --analytic already gives the "
+                    + "exact seat distribution, tails included");
+        }
+        if (sensitivity && (settings.getTargetMajorityStdError() > 0 || settings.getTargetSeatsStdError() > 0)) {
+            throw new IllegalArgumentException("--majority-se and --seats-se don't work with --sensitivity");
+        }
+        //A shard that stops early can't be merged, so don't run one only to have the merge reject it.
+        if (shard && (settings.getTargetMajorityStdError() > 0 || settings.getTargetSeatsStdError() > 0
+                || settings.getTimeBudgetMillis() > 0)) {
+            throw new IllegalArgumentException("--majority-se, --seats-se and --time-budget don't work with --shard, "
+                    + "since every shard has to run to the end to merge");
+        }
+        if (settings.getDistrictDegreesOfFreedom() < Double.POSITIVE_INFINITY
+                && settings.getKernelType() != SimulationSettings.KernelType.SCALAR
+                && settings.getKernelType() != SimulationSettings.KernelType.FAST) {
+            throw new IllegalArgumentException("--district-dof only works with --kernel=scalar or --kernel=fast");
+        }
+
+        if (queryFile != null) {
+            //Answer from a stored run, without reading the inputs or simulating.
+            System.out.println("Dem win chance given " + given + ": " + Math.round(10000. * Simulations.writeQuery(
+                    queryFile, given.toArray(new String[0]), settings.getMajority())) / 100. + "%");
+            return;
+        }
+
         //Grade quality points are hard-coded.
         Map<Grade, Double> gradeQualityPoints = new HashMap<>();
         gradeQualityPoints.put(Grade.A, 0.176981753181247);
@@ -46,7 +261,7 @@ public class Main {
                 0.071258656, -0.08732089377, 0.1317467159, 0.1496166305);
 
         //Use Daniel's thing because it's better.
-        NationalShiftCalculator natlShiftCalc = new DZhuNatlShiftCalc("2014.csv",
+        DZhuNatlShiftCalc natlShiftCalc = new DZhuNatlShiftCalc("2014.csv",
                 "2016.csv", redistricted2018, redistricted2016);
 
         //Read in the districts
@@ -100,8 +315,75 @@ public class Main {
         //Calculate AUSPICE
         auspiceModel.calcAll(districts);
 
-        //Run simulations
-        System.out.println("Dem win chance: " + Math.round(10000. * Simulations.write(districts, nationalShiftStDv,
-                1000000)) / 100. + "%");
+        if (analytic) {
+            //Exact seat distribution, no simulations needed.
+            System.out.println("Dem win chance: " + Math.round(10000. * Simulations.writeAnalytic(districts,
+                    nationalShiftStDv, 32, settings.getMajority())) / 100. + "%");
+            return;
+        }
+
+        //Log the seed so a run can be reproduced with the same seed and thread count.
+        System.out.println("Seed: " + settings.getSeed() + ", threads: " + settings.getThreads() + ", kernel: "
+                + settings.getKernelType() + ", rng: " + settings.getRngType() + ", noise: "
+                + settings.getNoiseSampling() + ", error model: " + settings.getErrorModel() + ", degrees of freedom: "
+                + settings.getNationalDegreesOfFreedom() + " national, " + settings.getDistrictDegreesOfFreedom()
+                + " district");
+
+        if (sensitivity) {
+            //Which districts' errors the majority depends on, as Sobol indices.
+            Simulations.writeSensitivity(districts, nationalShiftStDv, settings);
+        } else if (voteShare) {
+            //Sample vote shares, weighting the national vote by the same turnout used for the national shift.
+            System.out.println("Dem win chance: " + Math.round(10000. * Simulations.writeVoteShares(districts,
+                    nationalShiftStDv, natlShiftCalc.getTurnouts(districts), settings)) / 100. + "%");
+        } else if (scenarioMode) {
+            //Snapshot the baseline, then recalculate bigmood and AUSPICE for each generic ballot scenario.
+            List<Scenario> scenarios = new ArrayList<>();
+            Scenario baseline = new Scenario("baseline", districts, nationalShiftStDv);
+            scenarios.add(baseline);
+            for (double stDv : scenarioStDvs) {
+                scenarios.add(baseline.withNationalShiftStDv("stdv_" + stDv, stDv));
+            }
+            for (double ballot : scenarioBallots) {
+                bigmoodModel.calcAll(districts, nationalShiftFunction.getNationalShift(nationalPollAverage + ballot));
+                auspiceModel.calcAll(districts);
+                scenarios.add(new Scenario("ballot_" + ballot, districts, nationalShiftStDv));
+            }
+            bigmoodModel.calcAll(districts, nationalShift);
+            auspiceModel.calcAll(districts);
+
+            System.out.println("Dem win chance: " + Math.round(10000. * Simulations.writeScenarios(
+                    scenarios.toArray(new Scenario[0]), settings)) / 100. + "%");
+        } else if (!chambers.isEmpty()) {
+            //The House plus every other race group, all against the same national noise.
+            List<RaceGroup> groups = new ArrayList<>();
+            groups.add(new RaceGroup("house", new CompiledDistricts(districts, nationalShiftStDv,
+                    settings.getPruneLimit(), settings.isGaussian() ? settings.getPruneTolerance() : 0),
+                    settings.getMajority(), 0));
+            for (String[] chamber : chambers) {
+                //Each group's national shift standard deviation, the House's unless the flag gives one.
+                double groupStDv = chamber.length > 4 ? Double.parseDouble(chamber[4]) : nationalShiftStDv;
+                groups.add(new RaceGroup(chamber[0], new CompiledDistricts(DataReader.readRaces(chamber[1]),
+                        groupStDv), Integer.parseInt(chamber[2]), Integer.parseInt(chamber[3])));
+            }
+            Simulations.writeChambers(groups.toArray(new RaceGroup[0]), settings);
+        } else if (!shardFiles.isEmpty()) {
+            //Combine the slices other processes simulated.
+            System.out.println("Dem win chance: " + Math.round(10000. * Simulations.writeMerged(districts,
+                    shardFiles.toArray(new String[0]), settings.getMajority())) / 100. + "%");
+        } else if (shard) {
+            //Simulate one slice, to be merged later.
+            Simulations.writeShard(districts, nationalShiftStDv, settings, "shard_" + settings.getShardIndex()
+                    + ".bin");
+        } else {
+            //Run simulations
+            System.out.println("Dem win chance: " + Math.round(10000. * Simulations.write(districts,
+                    nationalShiftStDv, settings)) / 100. + "%");
+        }
+
+        //Landslide probabilities, which plain simulations only hit a few hundred times.
+        if (!tails.isEmpty()) {
+            Simulations.writeTails(districts, nationalShiftStDv, settings, tails.toArray(new int[0][]));
+        }
     }
 }
@@ -1,12 +1,38 @@
 import dataholder.District;
-import util.Normal;
+import simulation.AnalyticEngine;
+import simulation.Checkpoint;
+import simulation.CoWinMatrix;
+import simulation.CompiledDistricts;
+import simulation.ImportanceSampler;
+import simulation.MultiChamberResult;
+import simulation.MultiChamberSimulator;
+import simulation.OutcomeQuery;
+import simulation.ParallelSimulator;
+import simulation.QuantileSketches;
+import simulation.RaceGroup;
+import simulation.Scenario;
+import simulation.ScenarioResult;
+import simulation.ScenarioSimulator;
+import simulation.SeatDistribution;
+import simulation.Shard;
+import simulation.SimulationResult;
+import simulation.SimulationSettings;
+import simulation.SobolAnalyzer;
+import simulation.SobolResult;
+import simulation.TailEstimate;
+import simulation.VoteShareResult;
+import simulation.VoteShareSimulator;
 
 import java.io.BufferedWriter;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.nio.file.Paths;
 import java.time.LocalDate;
-import java.util.Random;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
 
 /**
  * Runs the simulations to determine the actual Democrat win % for the country.
@@ -15,7 +41,7 @@ public class Simulations {
 
     /**
      * Simulate the house races and write the histogram of how many seats Democrats win to one file, and the
-     * per-district stats to another.
+     * per-district stats to another. Uses a random seed and every available processor.
      *
      * @param districts         The districts to simulate, with fundamentals already calculated.
      * @param nationalShiftStDv The standard deviation of the national shift, to be applied as noise to the AUSPICE
@@ -24,66 +50,621 @@ public class Simulations {
      * @return The probability that Democrats win a majority in the House.
      * @throws IOException If the file writing fails.
      */
-    public static double write(District[] districts, double nationalShiftStDv, int iterations) throws IOException {
-        Random generator = new Random();
+    public static double write(District[] districts, double nationalShiftStDv, long iterations) throws IOException {
+        return write(districts, nationalShiftStDv, iterations, new SplittableRandom().nextLong(),
+                Runtime.getRuntime().availableProcessors());
+    }
 
-        //Outputs info about each district.
-        PrintWriter out1 = new PrintWriter(new BufferedWriter(new FileWriter("district_results.csv")));
-        //Outputs the histogram of Democrat seats won.
-        PrintWriter out2 = new PrintWriter(new BufferedWriter(new FileWriter("histogram.csv")));
+    /**
+     * Simulate the house races in parallel and write the histogram of how many seats Democrats win to one file, and the
+     * per-district stats to another. The same seed and thread count always give the same results.
+     *
+     * @param districts         The districts to simulate, with fundamentals already calculated.
+     * @param nationalShiftStDv The standard deviation of the national shift, to be applied as noise to the AUSPICE
+     *                          predictions.
+     * @param iterations        The number of generic ballots to simulate.
+     * @param seed              The seed for the random streams.
+     * @param threads           How many threads to split the simulations across.
+     * @return The probability that Democrats win a majority in the House.
+     * @throws IOException If the file writing fails.
+     */
+    public static double write(District[] districts, double nationalShiftStDv, long iterations, long seed,
+                               int threads) throws IOException {
+        SimulationSettings settings = new SimulationSettings(iterations, seed);
+        settings.setThreads(threads);
+        return write(districts, nationalShiftStDv, settings);
+    }
 
-        //Record how many seats Democrats won in each simulation.
-        double[] histogram = new double[districts.length + 1];
+    /**
+     * Simulate the house races in parallel and write the histogram of how many seats Democrats win to one file, and the
+     * per-district stats to another. The same settings always give the same results.
+     *
+     * @param districts         The districts to simulate, with fundamentals already calculated.
+     * @param nationalShiftStDv The standard deviation of the national shift, to be applied as noise to the AUSPICE
+     *                          predictions.
+     * @param settings          The number of simulations, stopping conditions, seed, thread count, generator, noise
+     *                          sampling, and kernel to use.
+     * @return The probability that Democrats win a majority in the House.
+     * @throws IOException              If the file writing fails.
+     * @throws IllegalArgumentException If a district's residual variance is NaN or not positive. This is checked
+     *                                  before any simulations run.
+     */
+    public static double write(District[] districts, double nationalShiftStDv, SimulationSettings settings)
+            throws IOException {
+        //Validate and flatten the districts once, before the run starts, and take the safe seats out of the loop. The
+        // pruning bounds assume normal errors, so nothing is pruned with fat tails.
+        CompiledDistricts compiled = new CompiledDistricts(districts, nationalShiftStDv, settings.getPruneLimit(),
+                settings.isGaussian() ? settings.getPruneTolerance() : 0);
+        System.out.println("Pruned " + compiled.getNumPruned() + " safe districts, " + compiled.getNumActive()
+                + " competitive districts left");
+        ParallelSimulator simulator = new ParallelSimulator(compiled, settings);
+        SimulationResult result = simulator.run();
 
-        //Record the average chance the Democrats win each district.
-        double[] avgDistrictWinChances = new double[districts.length];
+        //The run can stop early, so normalize by how many simulations actually ran.
+        long iterations = result.getIterations();
+        System.out.println("Simulations run: " + iterations + ", majority standard error: "
+                + simulator.getMajorityStdError(result) + ", expected seats standard error: "
+                + simulator.getSeatsStdError(result));
+        //Each task is an independent replicate, so the spread between them shows what the noise sampling bought us.
+        System.out.println("Noise sampling: " + settings.getNoiseSampling() + ", variance relative to plain Monte "
+                + "Carlo: majority " + result.getMajorityVarianceRatio(settings.getMajority()) + ", expected seats "
+                + result.getSeatsVarianceRatio() + " (" + result.getReplicates() + " replicates)");
 
-        //How many seats the Democrats will win, on average.
-        double avgExpectedSeats = 0;
-
-        //Simulate different generic ballots
-        for (int i = 0; i < iterations; i++) {
-            //Calculate shift error for this run.
-            double noise = nationalShiftStDv * generator.nextGaussian();
-
-            //Check each district
-            int expectedSeats = 0;
-            for (int j = 0; j < districts.length; j++) {
-                double winChance;
-                //Normal.normalCDF doesn't like standard deviations of 0, so we handle that here.
-                if (districts[j].getAuspiceStDv() == 0) {
-                    winChance = districts[j].getAuspiceDemPercent() > 0.5 ? 1 : 0;
-                } else {
-                    //Since the vote percent is normally distributed, we can just calculate the chance that Democrats
-                    // win.
-                    winChance =
-                            1 - Normal.normalCDF(districts[j].getAuspiceDemPercent() + noise * districts[j].getElasticity(),
-                                    Math.sqrt(Math.pow(districts[j].getAuspiceStDv(), 2) - Math.pow(nationalShiftStDv * districts[j].getElasticity(), 2)),
-                                    0.5);
-                    //If a win chance is less than 0% or more than 100%, something has gone horribly wrong.
-                    if (winChance > 1 || winChance < 0) {
-                        System.out.println("aaaaaaaaaaaa " + districts[j].getName());
-                    }
-                }
-                if (Math.random() < winChance) {
-                    //The expected number of seats is the sum of the percent chance that Democrats win each seat.
-                    expectedSeats++;
-                    //Sum now, divide later.
-                    avgDistrictWinChances[j]++;
+        if (simulator.getCoWins() != null) {
+            writeCoWins(compiled, simulator.getCoWins());
+        }
+
+        return writeResults(districts, result.toSeatDistribution(), settings.getMajority());
+    }
+
+    /**
+     * Write the probability that Democrats win each pair of competitive districts to co_win_matrix.csv, and the
+     * correlation between the two outcomes to co_win_correlation.csv. Both are square matrices with the district names
+     * as the first row and column, and the co-win matrix's diagonal is each district's win chance.
+     *
+     * @param compiled The districts that were simulated.
+     * @param coWins   The co-win counts.
+     * @throws IOException If the file writing fails.
+     */
+    private static void writeCoWins(CompiledDistricts compiled, CoWinMatrix coWins) throws IOException {
+        int[] members = coWins.getMembers();
+        StringBuilder header = new StringBuilder("district");
+        for (int member : members) {
+            header.append(',').append(compiled.getDistricts()[compiled.getActiveIndices()[member]].getName());
+        }
+
+        PrintWriter probabilities = new PrintWriter(new BufferedWriter(new FileWriter("co_win_matrix.csv")));
+        PrintWriter correlations = new PrintWriter(new BufferedWriter(new FileWriter("co_win_correlation.csv")));
+        probabilities.println(header);
+        correlations.println(header);
+        for (int a = 0; a < members.length; a++) {
+            String name = compiled.getDistricts()[compiled.getActiveIndices()[members[a]]].getName();
+            StringBuilder probabilityRow = new StringBuilder(name);
+            StringBuilder correlationRow = new StringBuilder(name);
+            for (int b = 0; b < members.length; b++) {
+                probabilityRow.append(',').append((float) coWins.getCoWinProbability(a, b));
+                correlationRow.append(',').append((float) (a == b ? 1 : coWins.getCorrelation(a, b)));
+            }
+            probabilities.println(probabilityRow);
+            correlations.println(correlationRow);
+        }
+        probabilities.close();
+        correlations.close();
+        System.out.println("Co-win matrix: " + members.length + " competitive districts");
+    }
+
+    /**
+     * Simulate one slice of a run split across several processes, and write its raw counts to a shard file instead of
+     * the usual results. {@link #writeMerged} combines the shard files into the results of the whole run.
+     *
+     * @param districts         The districts to simulate, with fundamentals already calculated.
+     * @param nationalShiftStDv The standard deviation of the national shift, to be applied as noise to the AUSPICE
+     *                          predictions.
+     * @param settings          The number of simulations, seed, thread count, and shard to use, and everything else
+     *                          {@link #write(District[], double, SimulationSettings)} uses. Every shard of a run needs
+     *                          the same settings besides the shard index.
+     * @param file              The shard file to write.
+     * @throws IOException              If the file writing fails.
+     * @throws IllegalArgumentException If a district's residual variance is NaN or not positive.
+     */
+    public static void writeShard(District[] districts, double nationalShiftStDv, SimulationSettings settings,
+                                  String file) throws IOException {
+        CompiledDistricts compiled = new CompiledDistricts(districts, nationalShiftStDv, settings.getPruneLimit(),
+                settings.isGaussian() ? settings.getPruneTolerance() : 0);
+        ParallelSimulator simulator = new ParallelSimulator(compiled, settings);
+        SimulationResult result = simulator.run();
+        new Shard(Checkpoint.getFingerprint(compiled, settings), settings.getIterations(), settings.getShardIndex(),
+                settings.getShardCount(), simulator.getShardIterations(), result).save(Paths.get(file));
+        System.out.println("Shard " + settings.getShardIndex() + " of " + settings.getShardCount() + ": "
+                + result.getIterations() + " simulations written to " + file);
+    }
+
+    /**
+     * Merge every shard file of a run and write the same results as
+     * {@link #write(District[], double, SimulationSettings)} would have for the whole run.
+     *
+     * @param districts The districts that were simulated, with fundamentals already calculated.
+     * @param files     The shard files to merge, one for every slice of the run.
+     * @param majority  The number of seats needed for a majority.
+     * @return The probability that Democrats win a majority in the House.
+     * @throws IOException              If a shard file can't be read or the file writing fails.
+     * @throws IllegalArgumentException If the shards are from different runs or have different iteration limits, a
+     *                                  slice stopped early, the shards repeat or miss a slice, or they have a different
+     *                                  number of districts.
+     */
+    public static double writeMerged(District[] districts, String[] files, int majority) throws IOException {
+        Shard[] shards = new Shard[files.length];
+        for (int i = 0; i < files.length; i++) {
+            shards[i] = Shard.load(Paths.get(files[i]));
+        }
+        SimulationResult result = Shard.merge(shards);
+        if (result.getDistrictWins().length != districts.length) {
+            throw new IllegalArgumentException("Shards have " + result.getDistrictWins().length
+                    + " districts, expected " + districts.length);
+        }
+        System.out.println("Merged " + files.length + " shards, "
+                + result.getIterations() + " simulations, majority standard error: "
+                + result.getMajorityStdError(majority));
+        return writeResults(districts, result.toSeatDistribution(), majority);
+    }
+
+    /**
+     * Simulate several race groups, like the House and the Senate, against the same national noise, and write each
+     * group's majority probability and expected seats to chamber_results.csv and the probability of every combination
+     * of groups the Democrats control to joint_outcomes.csv.
+     *
+     * @param groups   The groups to simulate.
+     * @param settings The number of simulations, seed, thread count, generator, noise sampling, and kernel to use.
+     * @return The probability that Democrats control every group.
+     * @throws IOException If the file writing fails.
+     */
+    public static double writeChambers(RaceGroup[] groups, SimulationSettings settings) throws IOException {
+        MultiChamberResult result = new MultiChamberSimulator(groups, settings).run();
+        System.out.println("Simulations run: " + result.getIterations());
+
+        PrintWriter chambers = new PrintWriter(new BufferedWriter(new FileWriter("chamber_results.csv")));
+        chambers.println("group,races,baseline,majority,majority_probability,expected_seats");
+        for (int g = 0; g < groups.length; g++) {
+            SimulationResult group = result.getGroup(g);
+            double probability = group.getMajorityProbability(groups[g].getSeatsNeeded());
+            chambers.println(groups[g].getName() + "," + groups[g].getRaces().getNumDistricts() + ","
+                    + groups[g].getBaseline() + "," + groups[g].getMajority() + "," + probability + ","
+                    + (groups[g].getBaseline() + group.getAverageSeats()));
+            System.out.println("Dem " + groups[g].getName() + ": " + Math.round(10000. * probability) / 100. + "%");
+        }
+        chambers.close();
+
+        //Every combination of groups, from the Democrats controlling none of them to all of them.
+        PrintWriter joint = new PrintWriter(new BufferedWriter(new FileWriter("joint_outcomes.csv")));
+        StringBuilder header = new StringBuilder();
+        for (RaceGroup group : groups) {
+            header.append(group.getName()).append(',');
+        }
+        joint.println(header + "probability");
+        for (int mask = 0; mask < 1 << groups.length; mask++) {
+            StringBuilder line = new StringBuilder();
+            for (int g = 0; g < groups.length; g++) {
+                line.append((mask & 1 << g) != 0 ? "D" : "R").append(',');
+            }
+            joint.println(line.toString() + result.getJointProbability(mask));
+        }
+        joint.close();
+
+        int all = (1 << groups.length) - 1;
+        StringBuilder names = new StringBuilder();
+        for (int g = 0; g < groups.length; g++) {
+            names.append(g == 0 ? "" : g == groups.length - 1 ? " and " : ", ").append(groups[g].getName());
+        }
+        System.out.println("Dem " + names + ": " + Math.round(10000. * result.getAllProbability(all)) / 100. + "%");
+        return result.getAllProbability(all);
+    }
+
+    /**
+     * Calculate the seat distribution exactly, with quadrature over the national noise and the Poisson-binomial
+     * distribution of seats at each node, and write the same files as
+     * {@link #write(District[], double, SimulationSettings)}. There is no sampling noise, so the results are the same
+     * every time.
+     *
+     * @param districts         The districts to forecast, with fundamentals already calculated.
+     * @param nationalShiftStDv The standard deviation of the national shift, to be applied as noise to the AUSPICE
+     *                          predictions.
+     * @param panels            How many panels to cut the national noise into for the quadrature. 32 gives the
+     *                          majority probability to about 10 digits.
+     * @param majority          The number of seats needed for a majority.
+     * @return The probability that Democrats win a majority in the House.
+     * @throws IOException              If the file writing fails.
+     * @throws IllegalArgumentException If a district's residual variance is NaN or not positive.
+     */
+    public static double writeAnalytic(District[] districts, double nationalShiftStDv, int panels, int majority)
+            throws IOException {
+        CompiledDistricts compiled = new CompiledDistricts(districts, nationalShiftStDv);
+        return writeResults(districts, new AnalyticEngine(compiled, panels).compute(), majority);
+    }
+
+    /**
+     * Simulate the house races by sampling each district's vote share instead of only who wins, and write the same
+     * files as {@link #write(District[], double, SimulationSettings)} plus the joint distribution of Democratic seats
+     * and the Democratic share of the national two-party vote. Every random district is simulated, since a safe
+     * district's vote share still moves the national vote.
+     * <p>
+     * seat_vote_histogram.csv has the probability of each seat count and vote share bin that happened at least once,
+     * seat_vote_curve.csv has the average seats and majority probability for each vote share bin, and
+     * seat_vote_quantiles.csv has the quantiles of the seats and the vote share. If the settings keep quantile
+     * sketches, vote_share_quantiles.csv has percentile bands for every district's vote share, and if they count
+     * tipping points, tipping_points.csv has how often each district was the tipping point. If they name a raw draw
+     * file, it gets every simulation's national noise and district vote shares as float32 columns.
+     *
+     * @param districts         The districts to simulate, with fundamentals already calculated.
+     * @param nationalShiftStDv The standard deviation of the national shift, to be applied as noise to the AUSPICE
+     *                          predictions.
+     * @param turnouts          The turnout weight of each district, in the same order as the districts.
+     * @param settings          The number of simulations, seed, thread count, generator, noise sampling, and error
+     *                          model to use.
+     * @return The probability that Democrats win a majority in the House.
+     * @throws IOException              If the file writing fails.
+     * @throws IllegalArgumentException If a district's residual variance is NaN or not positive.
+     */
+    public static double writeVoteShares(District[] districts, double nationalShiftStDv, double[] turnouts,
+                                         SimulationSettings settings) throws IOException {
+        CompiledDistricts compiled = new CompiledDistricts(districts, nationalShiftStDv);
+        VoteShareResult result = new VoteShareSimulator(compiled, turnouts, settings).run();
+        long iterations = result.getSimulationResult().getIterations();
+        System.out.println("Simulations run: " + iterations + ", median national vote: "
+                + result.getVoteQuantile(0.5));
+
+        double width = 1. / VoteShareResult.VOTE_BINS;
+        PrintWriter histogram = new PrintWriter(new BufferedWriter(new FileWriter("seat_vote_histogram.csv")));
+        histogram.println("seats,dem_vote,probability");
+        for (int seats = 0; seats <= districts.length; seats++) {
+            for (int bin = 0; bin < VoteShareResult.VOTE_BINS; bin++) {
+                long count = result.getCount(seats, bin);
+                if (count > 0) {
+                    histogram.println(seats + "," + (bin + 0.5) * width + "," + (double) count / iterations);
                 }
             }
-            histogram[expectedSeats] += 1;
-            avgExpectedSeats += expectedSeats;
         }
+        histogram.close();
 
-        //Divide the expected seats
-        avgExpectedSeats /= iterations;
+        //The seat-vote curve: what each national vote share is worth in seats.
+        PrintWriter curve = new PrintWriter(new BufferedWriter(new FileWriter("seat_vote_curve.csv")));
+        curve.println("dem_vote,probability,average_seats,majority_probability");
+        for (int bin = 0; bin < VoteShareResult.VOTE_BINS; bin++) {
+            long count = 0;
+            long seatSum = 0;
+            long majorities = 0;
+            for (int seats = 0; seats <= districts.length; seats++) {
+                long cell = result.getCount(seats, bin);
+                count += cell;
+                seatSum += cell * seats;
+                majorities += seats >= settings.getMajority() ? cell : 0;
+            }
+            if (count > 0) {
+                curve.println((bin + 0.5) * width + "," + (double) count / iterations + ","
+                        + (double) seatSum / count + "," + (double) majorities / count);
+            }
+        }
+        curve.close();
 
-        //Divide the district win chances.
-        for (int i = 0; i < avgDistrictWinChances.length; i++) {
-            avgDistrictWinChances[i] /= iterations;
+        PrintWriter quantiles = new PrintWriter(new BufferedWriter(new FileWriter("seat_vote_quantiles.csv")));
+        quantiles.println("quantile,seats,dem_vote");
+        for (double quantile : new double[]{0.01, 0.05, 0.25, 0.5, 0.75, 0.95, 0.99}) {
+            quantiles.println(quantile + "," + result.getSeatQuantile(quantile) + ","
+                    + result.getVoteQuantile(quantile));
+        }
+        quantiles.close();
+
+        if (result.getSketches() != null) {
+            writeVoteShareQuantiles(compiled, result);
+        }
+        if (result.getTippingPoints() != null) {
+            writeTippingPoints(districts, result);
         }
 
+        return writeResults(districts, result.getSimulationResult().toSeatDistribution(), settings.getMajority());
+    }
+
+    /**
+     * Write the 5th, 25th, 50th, 75th and 95th percentiles of each district's vote share from the streaming sketches,
+     * and the same percentiles of the national vote and of the Democratic seats, to vote_share_quantiles.csv.
+     *
+     * @param compiled The districts that were simulated.
+     * @param result   The results, with quantile sketches.
+     * @throws IOException If the file writing fails.
+     */
+    private static void writeVoteShareQuantiles(CompiledDistricts compiled, VoteShareResult result)
+            throws IOException {
+        double[] quantiles = {0.05, 0.25, 0.5, 0.75, 0.95};
+        QuantileSketches sketches = result.getSketches();
+        District[] districts = compiled.getDistricts();
+
+        //Fixed districts always have the same vote share, so every quantile is the AUSPICE mean.
+        int[] sketchIndices = new int[districts.length];
+        Arrays.fill(sketchIndices, -1);
+        int[] activeIndices = compiled.getActiveIndices();
+        for (int j = 0; j < activeIndices.length; j++) {
+            sketchIndices[activeIndices[j]] = j;
+        }
+
+        PrintWriter out = new PrintWriter(new BufferedWriter(new FileWriter("vote_share_quantiles.csv")));
+        out.println("district,q05,q25,q50,q75,q95");
+        for (int i = 0; i < districts.length; i++) {
+            StringBuilder line = new StringBuilder(districts[i].getName());
+            for (double quantile : quantiles) {
+                line.append(',').append(sketchIndices[i] < 0 ? districts[i].getAuspiceDemPercent()
+                        : sketches.getQuantile(sketchIndices[i], quantile));
+            }
+            out.println(line);
+        }
+
+        StringBuilder vote = new StringBuilder("national_vote");
+        StringBuilder seats = new StringBuilder("seats");
+        for (double quantile : quantiles) {
+            vote.append(',').append(result.getVoteQuantile(quantile));
+            seats.append(',').append(result.getSeatQuantile(quantile));
+        }
+        out.println(vote);
+        out.println(seats);
+        out.close();
+    }
+
+    /**
+     * Write how often each district was the tipping point, the district that delivered the majority-th seat when the
+     * districts are ordered by Democratic margin, to tipping_points.csv alongside district_results.csv.
+     *
+     * @param districts The districts that were simulated.
+     * @param result    The results, with tipping-point counts.
+     * @throws IOException If the file writing fails.
+     */
+    private static void writeTippingPoints(District[] districts, VoteShareResult result) throws IOException {
+        long[] tippingPoints = result.getTippingPoints();
+        double iterations = result.getSimulationResult().getIterations();
+        PrintWriter out = new PrintWriter(new BufferedWriter(new FileWriter("tipping_points.csv")));
+        out.println("district,auspice,tipping_point");
+        for (int i = 0; i < districts.length; i++) {
+            out.println(districts[i].getName() + "," + districts[i].getAuspiceDemPercent() + ","
+                    + tippingPoints[i] / iterations);
+        }
+        out.close();
+    }
+
+    /**
+     * Simulate several scenarios in one pass against the same draws, and write one district results file and one
+     * histogram per scenario, named after the scenario, plus the differences between each scenario and the first one
+     * to scenario_differences.csv. The differences have much less sampling noise than the difference between
+     * separate runs would.
+     *
+     * @param scenarios The scenarios to simulate, baseline first. Every scenario must have the same districts.
+     * @param settings  The number of simulations, seed, thread count, generator, noise sampling, and kernel to use.
+     * @return The probability that Democrats win a majority in the House in the baseline scenario.
+     * @throws IOException              If the file writing fails.
+     * @throws IllegalArgumentException If the scenarios have different districts or a district's residual variance is
+     *                                  NaN or not positive.
+     */
+    public static double writeScenarios(Scenario[] scenarios, SimulationSettings settings) throws IOException {
+        ScenarioResult result = new ScenarioSimulator(scenarios, settings).run();
+        System.out.println("Simulations run: " + result.getIterations() + " for each of " + scenarios.length
+                + " scenarios");
+
+        LocalDate today = LocalDate.now();
+        for (int k = 0; k < scenarios.length; k++) {
+            Scenario scenario = scenarios[k];
+            SeatDistribution distribution = result.getResult(k).toSeatDistribution();
+            double[] districtWinChances = distribution.getDistrictWinChances();
+            District[] districts = scenario.getDistricts();
+
+            //Same columns as district_results.csv, with this scenario's bigmood and AUSPICE outputs.
+            PrintWriter out1 = new PrintWriter(new BufferedWriter(new FileWriter("district_results_"
+                    + scenario.getName() + ".csv")));
+            out1.println("year,month,day,district,auspice,stdev,chance,seer,bigmood,bpi");
+            for (int i = 0; i < districts.length; i++) {
+                out1.println(today.getYear() + "," + today.getMonthValue() + "," + today.getDayOfMonth() + ","
+                        + districts[i].getName() + "," + scenario.getAuspiceMeans()[i] + ","
+                        + scenario.getAuspiceStDvs()[i] + "," + districtWinChances[i] + ","
+                        + districts[i].getSeerDemPercent() + "," + scenario.getBigmoodMeans()[i] + ","
+                        + districts[i].getBpi());
+            }
+            out1.close();
+
+            //Same layout as histogram.csv.
+            PrintWriter out2 = new PrintWriter(new BufferedWriter(new FileWriter("histogram_" + scenario.getName()
+                    + ".csv")));
+            for (double seatProbability : distribution.getSeatProbabilities()) {
+                out2.println(seatProbability);
+            }
+            out2.println(distribution.getMajorityProbability(settings.getMajority()));
+            out2.println(distribution.getAverageSeats());
+            out2.close();
+            System.out.println(scenario.getName() + ": majority " + distribution.getMajorityProbability(
+                    settings.getMajority()) + ", average seats " + distribution.getAverageSeats());
+        }
+
+        //The paired differences from the baseline, and how much less noisy they are than separate runs would be.
+        PrintWriter out = new PrintWriter(new BufferedWriter(new FileWriter("scenario_differences.csv")));
+        out.println("scenario,baseline,seat_difference,seat_difference_stderr,seat_variance_ratio,"
+                + "majority_difference,majority_difference_stderr,majority_variance_ratio");
+        for (int k = 1; k < scenarios.length; k++) {
+            out.println(scenarios[k].getName() + "," + scenarios[0].getName() + "," + result.getSeatDifference(k)
+                    + "," + result.getSeatDifferenceStdError(k) + "," + result.getSeatDifferenceVarianceRatio(k) + ","
+                    + result.getMajorityDifference(k) + "," + result.getMajorityDifferenceStdError(k) + ","
+                    + result.getMajorityDifferenceVarianceRatio(k));
+        }
+        out.close();
+
+        return result.getResult(0).getMajorityProbability(settings.getMajority());
+    }
+
+    /**
+     * Estimate the probabilities of seat count regions in the tails, such as a Democratic landslide, with importance
+     * sampling, and write them with their 95% confidence intervals to tail_results.csv. Every district is simulated,
+     * since the shifted noise can reach districts that would otherwise be pruned as safe.
+     *
+     * @param districts         The districts to simulate, with fundamentals already calculated.
+     * @param nationalShiftStDv The standard deviation of the national shift, to be applied as noise to the AUSPICE
+     *                          predictions.
+     * @param settings          The number of tail iterations, seed, thread count, generator, and kernel to use.
+     * @param regions           The regions to estimate, each the fewest and the most Democratic seats in the region.
+     * @throws IOException              If the file writing fails.
+     * @throws IllegalArgumentException If a district's residual variance is NaN or not positive, or a region is empty.
+     */
+    public static void writeTails(District[] districts, double nationalShiftStDv, SimulationSettings settings,
+                                  int[][] regions) throws IOException {
+        CompiledDistricts compiled = new CompiledDistricts(districts, nationalShiftStDv);
+        ImportanceSampler sampler = new ImportanceSampler(compiled, settings);
+
+        PrintWriter out = new PrintWriter(new BufferedWriter(new FileWriter("tail_results.csv")));
+        out.println("min_seats,max_seats,shift,iterations,hits,probability,stderr,lower,upper");
+        for (int[] region : regions) {
+            TailEstimate tail = sampler.estimate(region[0], region[1], settings.getTailIterations());
+            out.println(tail.getMinSeats() + "," + tail.getMaxSeats() + "," + tail.getShift() + ","
+                    + tail.getIterations() + "," + tail.getHits() + "," + tail.getProbability() + ","
+                    + tail.getStdError() + "," + tail.getLowerBound() + "," + tail.getUpperBound());
+            System.out.println("Dem seats " + tail.getMinSeats() + "-" + tail.getMaxSeats() + ": "
+                    + tail.getProbability() + " (95% CI " + tail.getLowerBound() + " to " + tail.getUpperBound()
+                    + "), variance relative to plain Monte Carlo: " + tail.getVarianceRatio());
+        }
+        out.close();
+    }
+
+    /**
+     * Estimate how much of the uncertainty in the House majority comes from each competitive district's residual error
+     * and from the national noise, and write the first-order and total-effect Sobol indices with their 95% confidence
+     * intervals to sobol_indices.csv, biggest total effect first. The first-order index is the share of the majority's
+     * variance an input explains on its own, and the total effect adds what it explains together with the others. If
+     * the majority never changes in the samples, there's nothing to split up, so only the header is written.
+     *
+     * @param districts         The districts to analyze, with fundamentals already calculated.
+     * @param nationalShiftStDv The standard deviation of the national shift, to be applied as noise to the AUSPICE
+     *                          predictions.
+     * @param settings          The number of sample pairs, seed, thread count, generator, kernel, and majority to use.
+     * @throws IOException              If the file writing fails.
+     * @throws IllegalArgumentException If a district's residual variance is NaN or not positive, or the error model
+     *                                  isn't independent.
+     */
+    public static void writeSensitivity(District[] districts, double nationalShiftStDv, SimulationSettings settings)
+            throws IOException {
+        CompiledDistricts compiled = new CompiledDistricts(districts, nationalShiftStDv, settings.getPruneLimit(),
+                settings.isGaussian() ? settings.getPruneTolerance() : 0);
+        SobolResult result = new SobolAnalyzer(compiled, settings).run();
+        System.out.println("Sample pairs drawn: " + result.getSamples() + ", majority variance: "
+                + result.getVariance());
+
+        PrintWriter out = new PrintWriter(new BufferedWriter(new FileWriter("sobol_indices.csv")));
+        out.println("input,first_order,first_lower,first_upper,total,total_lower,total_upper");
+        if (!result.hasVariance()) {
+            //Every index would divide by a variance of 0, so say why there's nothing to report instead.
+            out.close();
+            System.out.println("The " + (result.getMajorityProbability() > 0 ? "Democrats" : "Republicans")
+                    + " won the majority in every sample, so there is no variance to attribute and no indices were "
+                    + "written");
+            return;
+        }
+
+        //The competitive districts in compiled order, then the national noise.
+        int numActive = compiled.getNumActive();
+        String[] names = new String[numActive + 1];
+        for (int j = 0; j < numActive; j++) {
+            names[j] = districts[compiled.getActiveIndices()[j]].getName();
+        }
+        names[numActive] = "national_noise";
+        Integer[] order = new Integer[names.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(result.getTotal(b), result.getTotal(a)));
+
+        for (int rank = 0; rank < order.length; rank++) {
+            int i = order[rank];
+            double first = result.getFirstOrder(i);
+            double firstMargin = 1.96 * result.getFirstOrderStdError(i);
+            double total = result.getTotal(i);
+            double totalMargin = 1.96 * result.getTotalStdError(i);
+            out.println(names[i] + "," + first + "," + (first - firstMargin) + "," + (first + firstMargin) + ","
+                    + total + "," + (total - totalMargin) + "," + (total + totalMargin));
+            if (rank < 10) {
+                System.out.println(names[i] + ": first order " + Math.round(10000. * first) / 100. + "% (+/- "
+                        + Math.round(10000. * firstMargin) / 100. + "), total " + Math.round(10000. * total) / 100.
+                        + "% (+/- " + Math.round(10000. * totalMargin) / 100. + ")");
+            }
+        }
+        out.close();
+    }
+
+    /**
+     * Answer a conditional question from a stored outcome file without simulating again: print how often the
+     * conditions happened together, and the majority probability and expected seats given them, and write the seat
+     * histogram given them to query_histogram.csv.
+     *
+     * @param file       The outcome file written by an earlier run.
+     * @param conditions The conditions, each a district name, a colon, and D if Democrats win it or R if they don't,
+     *                   like PA-07:D.
+     * @param majority   The number of seats needed for a majority.
+     * @return The probability that Democrats win a majority in the House given the conditions, or NaN if the
+     * conditions never happened together.
+     * @throws IOException              If the outcome file can't be read or the file writing fails.
+     * @throws IllegalArgumentException If a condition isn't formatted right or names a district that isn't in the file.
+     */
+    public static double writeQuery(String file, String[] conditions, int majority) throws IOException {
+        OutcomeQuery query = new OutcomeQuery(Paths.get(file));
+        List<Integer> demWins = new ArrayList<>();
+        List<Integer> repWins = new ArrayList<>();
+        for (String condition : conditions) {
+            int colon = condition.lastIndexOf(':');
+            String party = condition.substring(colon + 1);
+            if (colon < 0 || !(party.equals("D") || party.equals("R"))) {
+                throw new IllegalArgumentException("Condition " + condition + " isn't a district name, a colon, and "
+                        + "D or R");
+            }
+            (party.equals("D") ? demWins : repWins).add(query.getDistrictIndex(condition.substring(0, colon)));
+        }
+
+        long start = System.nanoTime();
+        long[] histogram = query.getSeatHistogram(demWins.stream().mapToInt(Integer::intValue).toArray(),
+                repWins.stream().mapToInt(Integer::intValue).toArray());
+        long matches = 0;
+        long majorities = 0;
+        long seatSum = 0;
+        for (int seats = 0; seats < histogram.length; seats++) {
+            matches += histogram[seats];
+            majorities += seats >= majority ? histogram[seats] : 0;
+            seatSum += seats * histogram[seats];
+        }
+        double probability = (double) majorities / matches;
+        System.out.println("Queried " + query.getIterations() + " stored simulations in "
+                + (System.nanoTime() - start) / 1000000 + " ms, " + matches + " meet the conditions ("
+                + (double) matches / query.getIterations() + ")");
+        System.out.println("Given the conditions, majority probability: " + probability + " (standard error "
+                + Math.sqrt(probability * (1 - probability) / matches) + "), expected seats: "
+                + (double) seatSum / matches);
+
+        PrintWriter out = new PrintWriter(new BufferedWriter(new FileWriter("query_histogram.csv")));
+        out.println("dem_seats,probability");
+        for (int seats = 0; seats < histogram.length; seats++) {
+            out.println(seats + "," + (matches == 0 ? 0 : (double) histogram[seats] / matches));
+        }
+        out.close();
+        return probability;
+    }
+
+    /**
+     * Write the per-district stats, the histogram of how many seats Democrats win, and the per-state stats.
+     *
+     * @param districts    The districts that were forecast.
+     * @param distribution The seat distribution and district win chances.
+     * @param majority     The number of seats needed for a majority.
+     * @return The probability that Democrats win a majority in the House.
+     * @throws IOException If the file writing fails.
+     */
+    private static double writeResults(District[] districts, SeatDistribution distribution, int majority)
+            throws IOException {
+        //Outputs info about each district.
+        PrintWriter out1 = new PrintWriter(new BufferedWriter(new FileWriter("district_results.csv")));
+        //Outputs the histogram of Democrat seats won.
+        PrintWriter out2 = new PrintWriter(new BufferedWriter(new FileWriter("histogram.csv")));
+
+        //How many seats the Democrats will win, on average.
+        double avgExpectedSeats = distribution.getAverageSeats();
+        double[] districtWinChances = distribution.getDistrictWinChances();
+
         LocalDate today = LocalDate.now();
 
         //Record the day this simulation was run, the AUSPICE Democratic vote percent, the standard deviation of the
@@ -93,24 +674,19 @@ public class Simulations {
             out1.println(today.getYear() + "," + today.getMonthValue() + "," +
                     today.getDayOfMonth() + "," + districts[i].getName() + ","
                     + districts[i].getAuspiceDemPercent() + "," + districts[i].getAuspiceStDv() + ","
-                    + avgDistrictWinChances[i] + "," + districts[i].getSeerDemPercent() + ","
+                    + districtWinChances[i] + "," + districts[i].getSeerDemPercent() + ","
                     + districts[i].getBigmoodDemPercent() + "," + districts[i].getBpi());
         }
 
 
         //Record the normalized histogram.
-        for (double timesDemWonN : histogram) {
-            out2.println((timesDemWonN / iterations));
-        }
-
-        //Count how many times the Democrats won control of the House.
-        double totalDemProb = 0;
-        for (int i = 218; i < histogram.length; i++) {
-            totalDemProb += histogram[i];
+        for (double seatProbability : distribution.getSeatProbabilities()) {
+            out2.println(seatProbability);
         }
 
-        //Make it a probability
-        out2.println(totalDemProb / iterations);
+        //The probability the Democrats win control of the House.
+        double totalDemProb = distribution.getMajorityProbability(majority);
+        out2.println(totalDemProb);
 
         //Add expected seats
         out2.println(avgExpectedSeats);
@@ -150,7 +726,7 @@ public class Simulations {
         pw.close();
 
 
-        return totalDemProb / iterations;
+        return totalDemProb;
     }
 
 }
@@ -91,4 +91,18 @@ public class DZhuNatlShiftCalc implements NationalShiftCalculator {
         // percent of dem votes.
         return new SimpleNationalShiftFunction(demBaseline, stDv);
     }
+
+    /**
+     * Get the turnout weight of each district, the same weights used to find the national shift.
+     *
+     * @param districts A list of every district.
+     * @return How many people are expected to vote in each district, in the same order as the districts.
+     */
+    public double[] getTurnouts(District[] districts) {
+        double[] turnouts = new double[districts.length];
+        for (int i = 0; i < districts.length; i++) {
+            turnouts[i] = districtToVoteMap.get(districts[i].getName());
+        }
+        return turnouts;
+    }
 }
@@ -0,0 +1,43 @@
+package dataholder;
+
+/**
+ * An enum representing the four Census regions, for region-level polling error.
+ */
+public enum Region {
+    NORTHEAST("CT", "ME", "MA", "NH", "RI", "VT", "NJ", "NY", "PA"),
+    MIDWEST("IL", "IN", "MI", "OH", "WI", "IA", "KS", "MN", "MO", "NE", "ND", "SD"),
+    SOUTH("DE", "FL", "GA", "MD", "NC", "SC", "VA", "DC", "WV", "AL", "KY", "MS", "TN", "AR", "LA", "OK", "TX"),
+    WEST("AZ", "CO", "ID", "MT", "NV", "NM", "UT", "WY", "AK", "CA", "HI", "OR", "WA");
+
+    /**
+     * The two-letter postal abbreviations of the states in this region.
+     */
+    private final String[] states;
+
+    /**
+     * Default constructor.
+     *
+     * @param states The two-letter postal abbreviations of the states in this region.
+     */
+    Region(String... states) {
+        this.states = states;
+    }
+
+    /**
+     * Find the region a state is in.
+     *
+     * @param state A two-letter postal abbreviation, e.g. "PA". Not case-sensitive.
+     * @return The region the state is in.
+     * @throws IllegalArgumentException If the abbreviation doesn't match any state.
+     */
+    public static Region ofState(String state) {
+        for (Region region : values()) {
+            for (String s : region.states) {
+                if (s.equalsIgnoreCase(state)) {
+                    return region;
+                }
+            }
+        }
+        throw new IllegalArgumentException("Unknown state " + state);
+    }
+}
@@ -0,0 +1,49 @@
+package rng;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * A random stream backed by any {@link RandomGenerator}, with normals drawn by a {@link ZigguratNormal}.
+ */
+public class GeneratorStream implements RandomStream {
+
+    /**
+     * The generator that supplies the random bits.
+     */
+    private final RandomGenerator generator;
+
+    /**
+     * Default constructor.
+     *
+     * @param generator The generator that supplies the random bits. Must not be used by anything else.
+     */
+    public GeneratorStream(RandomGenerator generator) {
+        this.generator = generator;
+    }
+
+    @Override
+    public double nextUniform() {
+        return generator.nextDouble();
+    }
+
+    @Override
+    public double nextGaussian() {
+        return ZigguratNormal.next(generator);
+    }
+
+    @Override
+    public void fillUniforms(double[] out) {
+        RandomGenerator generator = this.generator;
+        for (int i = 0; i < out.length; i++) {
+            out[i] = generator.nextDouble();
+        }
+    }
+
+    @Override
+    public void fillGaussians(double[] out) {
+        RandomGenerator generator = this.generator;
+        for (int i = 0; i < out.length; i++) {
+            out[i] = ZigguratNormal.next(generator);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package rng;
+
+/**
+ * A source of random numbers for one simulation task. Streams are not thread-safe, so every task needs its own.
+ */
+public interface RandomStream {
+
+    /**
+     * @return A uniform draw from [0, 1).
+     */
+    double nextUniform();
+
+    /**
+     * @return A draw from the standard normal distribution.
+     */
+    double nextGaussian();
+
+    /**
+     * Fill a whole array with uniform draws from [0, 1). Doing this once per block of draws instead of once per draw
+     * keeps the generator's state in registers.
+     *
+     * @param out The array to fill.
+     */
+    void fillUniforms(double[] out);
+
+    /**
+     * Fill a whole array with draws from the standard normal distribution.
+     *
+     * @param out The array to fill.
+     */
+    void fillGaussians(double[] out);
+}
@@ -0,0 +1,73 @@
+package rng;
+
+import java.util.random.RandomGeneratorFactory;
+
+/**
+ * The random number generator algorithms a simulation can use. Every stream is derived from one seed and a stream
+ * index, so the same seed always gives the same set of streams no matter which thread asks for which stream first.
+ */
+public enum RngType {
+    /**
+     * java.util.SplittableRandom, SplitMix64 underneath.
+     */
+    SPLITTABLE("SplittableRandom"),
+    /**
+     * The LXM generator with a 64-bit LCG and a 128-bit xorshift, the JDK's recommended general-purpose generator.
+     */
+    L64X128("L64X128MixRandom"),
+    /**
+     * xoshiro256++.
+     */
+    XOSHIRO256("Xoshiro256PlusPlus");
+
+    /**
+     * The name of the algorithm, as known to {@link RandomGeneratorFactory}.
+     */
+    private final String algorithm;
+
+    /**
+     * Default constructor.
+     *
+     * @param algorithm The name of the algorithm, as known to {@link RandomGeneratorFactory}.
+     */
+    RngType(String algorithm) {
+        this.algorithm = algorithm;
+    }
+
+    /**
+     * Parse a generator type from a string. Not case-sensitive.
+     *
+     * @param rng The name of a generator type, e.g. "xoshiro256".
+     * @return The corresponding generator type.
+     * @throws IllegalArgumentException If the name doesn't match any generator type.
+     */
+    public static RngType parseFromString(String rng) {
+        return valueOf(rng.toUpperCase());
+    }
+
+    /**
+     * Create one of the streams derived from a seed.
+     *
+     * @param seed        The seed for the whole run.
+     * @param streamIndex Which stream to create. Different indices give independent streams.
+     * @return A new stream.
+     */
+    public RandomStream create(long seed, long streamIndex) {
+        return new GeneratorStream(RandomGeneratorFactory.of(algorithm).create(deriveSeed(seed, streamIndex)));
+    }
+
+    /**
+     * Mix a seed and a stream index into the seed for that stream, using the SplitMix64 finalizer so that nearby
+     * indices give unrelated seeds.
+     *
+     * @param seed        The seed for the whole run.
+     * @param streamIndex Which stream the seed is for.
+     * @return The seed for that stream.
+     */
+    public static long deriveSeed(long seed, long streamIndex) {
+        long z = seed + (streamIndex + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,67 @@
+package rng;
+
+/**
+ * Student's t draws, as a standard normal draw divided by sqrt(chi-squared / dof). The chi-squared draw is a gamma
+ * draw by Marsaglia and Tsang's squeeze method, which takes one normal and one uniform about 98% of the time.
+ */
+public class StudentTVariate {
+
+    /**
+     * @param random The stream to draw from.
+     * @param dof    The degrees of freedom. Must be above 2.
+     * @return A draw from Student's t distribution, scaled to a standard deviation of 1.
+     */
+    public static double nextStandardized(RandomStream random, double dof) {
+        return scaleStandardNormal(random.nextGaussian(), random, dof);
+    }
+
+    /**
+     * Turn a standard normal draw into a standardized t draw by dividing by an independent chi draw. Works for any
+     * standard normal draw, including stratified or quasi-random ones, as long as the chi-squared draw is independent
+     * of it.
+     *
+     * @param z      A standard normal draw.
+     * @param random The stream to draw the chi-squared from.
+     * @param dof    The degrees of freedom. Must be above 2.
+     * @return A draw from Student's t distribution, scaled to a standard deviation of 1.
+     */
+    public static double scaleStandardNormal(double z, RandomStream random, double dof) {
+        //z / sqrt(chi2 / dof) has variance dof / (dof - 2), so the sqrt((dof - 2) / dof) factor cancels the dofs.
+        return z * Math.sqrt((dof - 2) / nextChiSquared(random, dof));
+    }
+
+    /**
+     * @param random The stream to draw from.
+     * @param dof    The degrees of freedom. Must be at least 2.
+     * @return A draw from the chi-squared distribution.
+     */
+    public static double nextChiSquared(RandomStream random, double dof) {
+        return 2 * nextGamma(random, dof / 2);
+    }
+
+    /**
+     * Marsaglia and Tsang's method for gamma draws with a scale of 1.
+     *
+     * @param random The stream to draw from.
+     * @param shape  The shape. Must be at least 1.
+     * @return A draw from the gamma distribution.
+     */
+    private static double nextGamma(RandomStream random, double shape) {
+        double d = shape - 1. / 3;
+        double c = 1 / Math.sqrt(9 * d);
+        while (true) {
+            double x = random.nextGaussian();
+            double v = 1 + c * x;
+            if (v <= 0) {
+                continue;
+            }
+            v = v * v * v;
+            double u = random.nextUniform();
+            double square = x * x;
+            //Cheap squeeze first, then the exact test.
+            if (u < 1 - 0.0331 * square * square || Math.log(u) < 0.5 * square + d * (1 - v + Math.log(v))) {
+                return d * v;
+            }
+        }
+    }
+}
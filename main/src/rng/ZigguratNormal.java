@@ -0,0 +1,119 @@
+package rng;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * Marsaglia and Tsang's ziggurat method for standard normal draws, with 128 layers. About 99% of draws take one
+ * random long, one table lookup, one comparison and one multiplication.
+ * <p>
+ * Unlike the original RNOR, the layer index and the value come from separate bits of a 64-bit draw, which avoids the
+ * correlation between them that Doornik pointed out in the 32-bit version.
+ */
+public class ZigguratNormal {
+
+    /**
+     * Number of layers.
+     */
+    private static final int LAYERS = 128;
+
+    /**
+     * Where the base layer's tail starts.
+     */
+    private static final double R = 3.442619855899;
+
+    /**
+     * The area of each layer.
+     */
+    private static final double V = 9.91256303526217e-3;
+
+    /**
+     * 2^31, the scale of the 32-bit value drawn for each normal.
+     */
+    private static final double M1 = 2147483648.0;
+
+    /**
+     * If the absolute value of the 32-bit draw is under KN[i], the draw is inside layer i's rectangle and can be
+     * returned right away.
+     */
+    private static final long[] KN = new long[LAYERS];
+
+    /**
+     * The scale to turn a 32-bit draw into a value in layer i.
+     */
+    private static final double[] WN = new double[LAYERS];
+
+    /**
+     * The normal density, without the normalizing constant, at the right edge of each layer.
+     */
+    private static final double[] FN = new double[LAYERS];
+
+    static {
+        double dn = R;
+        double tn = dn;
+        double q = V / Math.exp(-0.5 * dn * dn);
+        KN[0] = (long) ((dn / q) * M1);
+        KN[1] = 0;
+        WN[0] = q / M1;
+        WN[LAYERS - 1] = dn / M1;
+        FN[0] = 1;
+        FN[LAYERS - 1] = Math.exp(-0.5 * dn * dn);
+        for (int i = LAYERS - 2; i >= 1; i--) {
+            dn = Math.sqrt(-2 * Math.log(V / dn + Math.exp(-0.5 * dn * dn)));
+            KN[i + 1] = (long) ((dn / tn) * M1);
+            tn = dn;
+            FN[i] = Math.exp(-0.5 * dn * dn);
+            WN[i] = dn / M1;
+        }
+    }
+
+    /**
+     * Draw from the standard normal distribution.
+     *
+     * @param generator The generator to draw random bits from.
+     * @return A standard normal draw.
+     */
+    public static double next(RandomGenerator generator) {
+        long bits = generator.nextLong();
+        int layer = (int) (bits & (LAYERS - 1));
+        //The top 32 bits are a signed value that is independent of the layer.
+        long value = bits >> 32;
+        if (Math.abs(value) < KN[layer]) {
+            return value * WN[layer];
+        }
+        return fix(generator, value, layer);
+    }
+
+    /**
+     * Handle the rare draws that land outside of a layer's rectangle, either in the wedge beside it or in the tail.
+     *
+     * @param generator The generator to draw random bits from.
+     * @param value     The signed 32-bit value that was drawn.
+     * @param layer     The layer that was drawn.
+     * @return A standard normal draw.
+     */
+    private static double fix(RandomGenerator generator, long value, int layer) {
+        while (true) {
+            double x = value * WN[layer];
+            if (layer == 0) {
+                //Sample from the tail past R with Marsaglia's method.
+                double tail;
+                double y;
+                do {
+                    tail = -Math.log(1 - generator.nextDouble()) / R;
+                    y = -Math.log(1 - generator.nextDouble());
+                } while (y + y < tail * tail);
+                return value > 0 ? R + tail : -R - tail;
+            }
+            if (FN[layer] + generator.nextDouble() * (FN[layer - 1] - FN[layer]) < Math.exp(-0.5 * x * x)) {
+                return x;
+            }
+
+            long bits = generator.nextLong();
+            layer = (int) (bits & (LAYERS - 1));
+            value = bits >> 32;
+            if (Math.abs(value) < KN[layer]) {
+                return value * WN[layer];
+            }
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package simulation;
+
+import util.NormalQuadrature;
+import util.Normal;
+
+/**
+ * Calculates the seat distribution exactly instead of simulating it. Once the national noise is fixed, every district is
+ * an independent Bernoulli trial, so the seat count is Poisson-binomial. The only thing left to integrate over is the
+ * standard normal noise, which {@link NormalQuadrature} handles with a few hundred evaluations. The answer is
+ * deterministic and has no sampling noise.
+ */
+public class AnalyticEngine {
+
+    /**
+     * The districts to forecast.
+     */
+    private final CompiledDistricts districts;
+
+    /**
+     * The quadrature rule for the national noise.
+     */
+    private final NormalQuadrature quadrature;
+
+    /**
+     * Default constructor.
+     *
+     * @param districts The districts to forecast.
+     * @param panels    How many panels to cut the national noise into for the quadrature. Each panel is 8 evaluations.
+     *                  The majority probability changes sharply over a fraction of a standard deviation of noise, so
+     *                  the panels should be no wider than that.
+     */
+    public AnalyticEngine(CompiledDistricts districts, int panels) {
+        this.districts = districts;
+        this.quadrature = new NormalQuadrature(panels);
+    }
+
+    /**
+     * Calculate the seat distribution and each district's win chance.
+     *
+     * @return The seat distribution and district win chances.
+     */
+    public SeatDistribution compute() {
+        double[] offsets = districts.getOffsets();
+        double[] slopes = districts.getSlopes();
+        int numActive = districts.getNumActive();
+        int fixedSeats = districts.getFixedSeats();
+        double nationalShiftStDv = districts.getNationalShiftStDv();
+
+        double[] seatProbabilities = new double[districts.getNumDistricts() + 1];
+        double[] activeWinChances = new double[numActive];
+        double[] winChances = new double[numActive];
+
+        double[] nodes = quadrature.getNodes();
+        double[] weights = quadrature.getWeights();
+        for (int k = 0; k < nodes.length; k++) {
+            double noise = nationalShiftStDv * nodes[k];
+            for (int j = 0; j < numActive; j++) {
+                winChances[j] = Normal.standardNormalCDF(offsets[j] + slopes[j] * noise);
+                activeWinChances[j] += weights[k] * winChances[j];
+            }
+
+            //The fixed districts just shift the whole distribution.
+            double[] conditional = PoissonBinomial.distribution(winChances);
+            for (int s = 0; s < conditional.length; s++) {
+                seatProbabilities[fixedSeats + s] += weights[k] * conditional[s];
+            }
+        }
+
+        //Put the win chances back in the original district order.
+        double[] districtWinChances = new double[districts.getNumDistricts()];
+        for (int i = 0; i < districtWinChances.length; i++) {
+            if (districts.isFixed(i)) {
+                districtWinChances[i] = districts.isFixedWin(i) ? 1 : 0;
+            }
+        }
+        int[] activeIndices = districts.getActiveIndices();
+        for (int j = 0; j < numActive; j++) {
+            districtWinChances[activeIndices[j]] = activeWinChances[j];
+        }
+        return new SeatDistribution(seatProbabilities, districtWinChances);
+    }
+}
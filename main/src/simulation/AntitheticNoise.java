@@ -0,0 +1,44 @@
+package simulation;
+
+import rng.RandomStream;
+
+/**
+ * Antithetic pairs: every other draw is the negative of the one before it. Since the seat count goes up with the
+ * noise, the two halves of each pair are negatively correlated, which cancels out some of the variance.
+ */
+public class AntitheticNoise implements NoiseSampler {
+
+    /**
+     * The task's random stream.
+     */
+    private final RandomStream random;
+
+    /**
+     * The last draw, to be negated for the next iteration.
+     */
+    private double last;
+
+    /**
+     * Whether the next draw is the second half of a pair.
+     */
+    private boolean mirror;
+
+    /**
+     * Default constructor.
+     *
+     * @param random The task's random stream.
+     */
+    public AntitheticNoise(RandomStream random) {
+        this.random = random;
+    }
+
+    @Override
+    public double next() {
+        mirror = !mirror;
+        if (mirror) {
+            last = random.nextGaussian();
+            return last;
+        }
+        return -last;
+    }
+}
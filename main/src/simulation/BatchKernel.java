@@ -0,0 +1,100 @@
+package simulation;
+
+import util.Normal;
+
+/**
+ * Decides every district in a few flat passes over primitive arrays. Each pass (shift and scale, CDF, compare) is a
+ * straight loop with no branches, calls into other classes, or allocations, so it's cheaper per district than
+ * {@link ScalarKernel}.
+ * <p>
+ * The CDF is the same cubic Hermite interpolation in the same table as {@link Normal#fastStandardNormalCDF(double)},
+ * done in the same order, so it's within {@link Normal#FAST_MAX_ERROR} of the exact CDF. Instead of branching on the
+ * ends of the table, z-scores past them are clamped to its first or last point, which are within 1e-17 of 0 and 1.
+ * <p>
+ * This is the fallback for {@link SimulationSettings.KernelType#BATCH} when the SIMD version, {@code VectorKernel},
+ * isn't available. It gives the same results as that one for the same seed.
+ */
+public class BatchKernel implements WinChanceKernel {
+
+    /**
+     * (mean - 0.5) / residual standard deviation for each random district.
+     */
+    private final double[] offsets;
+
+    /**
+     * elasticity / residual standard deviation for each random district.
+     */
+    private final double[] slopes;
+
+    /**
+     * The standard normal CDF at each table point.
+     */
+    private final double[] cdf;
+
+    /**
+     * The standard normal PDF at each table point.
+     */
+    private final double[] pdf;
+
+    /**
+     * Scratch space for the z-scores, then the win chances, of each random district.
+     */
+    private final double[] lanes;
+
+    /**
+     * Default constructor. Each task needs its own kernel, since the kernel keeps scratch space.
+     *
+     * @param districts The districts to simulate.
+     */
+    public BatchKernel(CompiledDistricts districts) {
+        this.offsets = districts.getOffsets();
+        this.slopes = districts.getSlopes();
+        this.cdf = Normal.getFastCDFTable();
+        this.pdf = Normal.getFastPDFTable();
+        this.lanes = new double[offsets.length];
+    }
+
+    @Override
+    public int simulate(double noise, double[] uniforms, int[] outcomes) {
+        int n = offsets.length;
+
+        //Shifted mean and residual scaling, as a z-score for the chance Democrats win.
+        for (int j = 0; j < n; j++) {
+            lanes[j] = offsets[j] + slopes[j] * noise;
+        }
+
+        //Standard normal CDF of each z-score.
+        for (int j = 0; j < n; j++) {
+            lanes[j] = standardNormalCDF(lanes[j], cdf, pdf);
+        }
+
+        //Compare against the uniform draws.
+        int seats = 0;
+        for (int j = 0; j < n; j++) {
+            int win = uniforms[j] < lanes[j] ? 1 : 0;
+            outcomes[j] = win;
+            seats += win;
+        }
+        return seats;
+    }
+
+    /**
+     * Branch-free version of {@link Normal#fastStandardNormalCDF(double)}, which clamps z-scores past the ends of the
+     * table instead of checking for them.
+     *
+     * @param z   The integration limit, in standard deviations from the mean.
+     * @param cdf {@link Normal#getFastCDFTable()}.
+     * @param pdf {@link Normal#getFastPDFTable()}.
+     * @return The standard normal CDF at z, within {@link Normal#FAST_MAX_ERROR}.
+     */
+    static double standardNormalCDF(double z, double[] cdf, double[] pdf) {
+        double position = Math.min(Math.max((z + Normal.FAST_LIMIT) * Normal.FAST_STEPS_PER_UNIT, 0), cdf.length - 1);
+        int i = Math.min((int) position, cdf.length - 2);
+        double t = position - i;
+        double t2 = t * t;
+        double t3 = t2 * t;
+        double h = 1. / Normal.FAST_STEPS_PER_UNIT;
+        return (2 * t3 - 3 * t2 + 1) * cdf[i] + (t3 - 2 * t2 + t) * h * pdf[i]
+                + (3 * t2 - 2 * t3) * cdf[i + 1] + (t3 - t2) * h * pdf[i + 1];
+    }
+}
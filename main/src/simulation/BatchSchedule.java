@@ -0,0 +1,158 @@
+package simulation;
+
+/**
+ * The batches a run is split into, and when to stop running them. Every simulator runs its batches in a loop over one
+ * of these, so the iteration limit, the time budget, and the standard error targets stop every kind of run the same
+ * way:
+ * <pre>
+ * BatchSchedule schedule = new BatchSchedule(settings, settings.getMajority());
+ * while (schedule.hasNext()) {
+ *     result.merge(runBatch(pool, schedule.getBatch(), schedule.getBatchIterations()));
+ *     schedule.next(result);
+ * }
+ * </pre>
+ * Batch b covers simulations b * batch size onwards, and a shard runs every shard count-th batch, so the shards of a
+ * run add up to exactly the batches of an unsharded run. A run always stops on a batch boundary, so its results match
+ * the same number of batches of an unlimited run.
+ */
+public class BatchSchedule {
+
+    /**
+     * The settings for the run, for the batch size, the iteration limit, the shard, and the stop conditions.
+     */
+    private final SimulationSettings settings;
+
+    /**
+     * The number of seats needed for a majority in the counts the standard error targets are checked against.
+     */
+    private final int majority;
+
+    /**
+     * When the run started, from {@link System#nanoTime()}.
+     */
+    private final long start;
+
+    /**
+     * The index of the next batch to run.
+     */
+    private int batch;
+
+    /**
+     * Whether a standard error target or the time budget has stopped the run early.
+     */
+    private boolean stopped;
+
+    /**
+     * Start from the run's first batch, or its shard's.
+     *
+     * @param settings The settings for the run.
+     * @param majority The number of seats needed for a majority in the counts passed to {@link #next}.
+     */
+    public BatchSchedule(SimulationSettings settings, int majority) {
+        this(settings, majority, settings.getShardIndex());
+    }
+
+    /**
+     * Start from a given batch, like the one a checkpoint was saved at.
+     *
+     * @param settings   The settings for the run.
+     * @param majority   The number of seats needed for a majority in the counts passed to {@link #next}.
+     * @param firstBatch The index of the first batch to run.
+     */
+    public BatchSchedule(SimulationSettings settings, int majority, int firstBatch) {
+        this.settings = settings;
+        this.majority = majority;
+        this.start = System.nanoTime();
+        this.batch = firstBatch;
+    }
+
+    /**
+     * @return Whether there's another batch to run: the iteration limit hasn't been reached and nothing has stopped the
+     * run early.
+     */
+    public boolean hasNext() {
+        return !stopped && (long) batch * settings.getBatchSize() < settings.getIterations();
+    }
+
+    /**
+     * @return The index of the next batch, which picks the streams its tasks use.
+     */
+    public int getBatch() {
+        return batch;
+    }
+
+    /**
+     * @return How many simulations the next batch covers, which is the batch size except for the last batch.
+     */
+    public int getBatchIterations() {
+        long done = (long) batch * settings.getBatchSize();
+        return (int) Math.min(settings.getBatchSize(), settings.getIterations() - done);
+    }
+
+    /**
+     * Move past the batch that just finished, and stop if every standard error target that is set has been met or the
+     * time budget has run out.
+     *
+     * @param counts The seat counts so far, to check the standard error targets against, or null if this kind of run
+     *               has none. Runs that pass null have to reject the targets instead of ignoring them.
+     */
+    public void next(SimulationResult counts) {
+        batch += settings.getShardCount();
+        stopped = (counts != null && isConverged(counts)) || (settings.getTimeBudgetMillis() > 0
+                && (System.nanoTime() - start) / 1000000 >= settings.getTimeBudgetMillis());
+    }
+
+    /**
+     * @param counts The counts so far.
+     * @return Whether every standard error target that is set has been met. False if no targets are set.
+     */
+    private boolean isConverged(SimulationResult counts) {
+        double majorityTarget = settings.getTargetMajorityStdError();
+        double seatsTarget = settings.getTargetSeatsStdError();
+        if (majorityTarget <= 0 && seatsTarget <= 0) {
+            return false;
+        }
+        //The plain estimates are 0 while every simulation has had the same majority, which would stop the run after
+        // one batch, so use the Agresti-Coull one for plain Monte Carlo and as a floor for replicates.
+        double adjusted = counts.getAdjustedMajorityStdError(majority);
+        double majorityError = settings.getNoiseSampling() == SimulationSettings.NoiseSampling.MONTE_CARLO
+                ? adjusted : getMajorityStdError(settings, counts, majority);
+        if (majorityError == 0) {
+            majorityError = adjusted;
+        }
+        boolean majorityMet = majorityTarget <= 0 || majorityError <= majorityTarget;
+        boolean seatsMet = seatsTarget <= 0 || getSeatsStdError(settings, counts) <= seatsTarget;
+        return majorityMet && seatsMet;
+    }
+
+    /**
+     * The standard error of the majority probability. Plain Monte Carlo uses the binomial formula. Every other noise
+     * sampling strategy uses the spread between tasks, since each task is an independent replicate and the binomial
+     * formula would ignore the variance reduction.
+     *
+     * @param settings The settings for the run, for the noise sampling strategy.
+     * @param counts   The counts so far.
+     * @param majority The number of seats needed for a majority.
+     * @return The standard error of the majority probability, or NaN if there aren't enough replicates yet.
+     */
+    public static double getMajorityStdError(SimulationSettings settings, SimulationResult counts, int majority) {
+        if (settings.getNoiseSampling() == SimulationSettings.NoiseSampling.MONTE_CARLO) {
+            return counts.getMajorityStdError(majority);
+        }
+        return counts.getReplicateMajorityStdError(majority);
+    }
+
+    /**
+     * The standard error of the expected seats, calculated the same way as {@link #getMajorityStdError}.
+     *
+     * @param settings The settings for the run, for the noise sampling strategy.
+     * @param counts   The counts so far.
+     * @return The standard error of the expected seats, or NaN if there aren't enough replicates yet.
+     */
+    public static double getSeatsStdError(SimulationSettings settings, SimulationResult counts) {
+        if (settings.getNoiseSampling() == SimulationSettings.NoiseSampling.MONTE_CARLO) {
+            return counts.getSeatsStdError();
+        }
+        return counts.getReplicateSeatsStdError();
+    }
+}
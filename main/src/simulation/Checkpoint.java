@@ -0,0 +1,177 @@
+package simulation;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * A snapshot of a simulation run between batches: the counts so far and the next batch to run. Every task's random
+ * stream is created fresh from the seed and the batch and task indices, so the next batch index is the whole random
+ * state, and resuming from a checkpoint finishes with exactly the counts an uninterrupted run would have.
+ * <p>
+ * The file holds the magic number and version as ints, the settings fingerprint as a UTF string, the next batch as an
+ * int, then the counts as {@link SimulationResult#writeTo} writes them. It's written to a temporary file first and
+ * then renamed over the old one, so a crash mid-write leaves the last checkpoint intact.
+ */
+public class Checkpoint {
+
+    /**
+     * The magic number at the start of every checkpoint file, "CHKP" in ASCII.
+     */
+    private static final int MAGIC = 0x43484B50;
+
+    /**
+     * The version of the file format.
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * Everything about the run that has to match for the counts to carry over.
+     */
+    private final String fingerprint;
+
+    /**
+     * The index of the next batch to run.
+     */
+    private final int batch;
+
+    /**
+     * The merged counts from every batch before it.
+     */
+    private final SimulationResult result;
+
+    /**
+     * Default constructor.
+     *
+     * @param fingerprint Everything about the run that has to match for the counts to carry over.
+     * @param batch       The index of the next batch to run.
+     * @param result      The merged counts from every batch before it.
+     */
+    public Checkpoint(String fingerprint, int batch, SimulationResult result) {
+        this.fingerprint = fingerprint;
+        this.batch = batch;
+        this.result = result;
+    }
+
+    /**
+     * Describe everything about a run that has to match for a checkpoint's counts to carry over: the districts and
+     * their compiled data, the seed, the thread count and batch size that pick the streams, and every setting that
+     * changes the draws or which districts are pruned. The iteration limit and the stopping conditions can change
+     * between runs.
+     *
+     * @param districts The districts being simulated.
+     * @param settings  The settings of the run.
+     * @return The fingerprint.
+     */
+    public static String getFingerprint(CompiledDistricts districts, SimulationSettings settings) {
+        return "districts=" + districts.getNumDistricts() + ",active=" + districts.getNumActive()
+                + ",data=" + Long.toHexString(hashDistricts(districts)) + ",prune=" + settings.getPruneLimit() + "/"
+                + settings.getPruneTolerance()
+                + ",natStDv=" + districts.getNationalShiftStDv() + ",seed=" + settings.getSeed()
+                + ",threads=" + settings.getThreads() + ",batch=" + settings.getBatchSize()
+                + ",majority=" + settings.getMajority() + ",kernel=" + settings.getKernelType() + "/"
+                + settings.getTableTolerance()
+                + ",rng=" + settings.getRngType() + ",noise=" + settings.getNoiseSampling()
+                + ",errors=" + settings.getErrorModel() + "/" + settings.getRegionalVarianceShare() + "/"
+                + settings.getStateVarianceShare() + ",dof=" + settings.getNationalDegreesOfFreedom() + "/"
+                + settings.getDistrictDegreesOfFreedom();
+    }
+
+    /**
+     * Hash everything the simulations read from the compiled districts, so a run can't resume after the inputs change.
+     *
+     * @param districts The districts being simulated.
+     * @return A 64-bit hash of the district names, the fixed outcomes, and the compiled arrays.
+     */
+    private static long hashDistricts(CompiledDistricts districts) {
+        long hash = 1125899906842597L;
+        for (int i = 0; i < districts.getNumDistricts(); i++) {
+            hash = 31 * hash + districts.getDistricts()[i].getName().hashCode();
+            hash = 31 * hash + (districts.isFixed(i) ? districts.isFixedWin(i) ? 2 : 1 : 0);
+        }
+        for (int index : districts.getActiveIndices()) {
+            hash = 31 * hash + index;
+        }
+        for (double[] values : new double[][]{districts.getMeans(), districts.getElasticities(),
+                districts.getResidualStDvs(), districts.getOffsets(), districts.getSlopes()}) {
+            for (double value : values) {
+                hash = 31 * hash + Double.doubleToLongBits(value);
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * Write this checkpoint atomically, replacing any older one.
+     *
+     * @param file The checkpoint file.
+     * @throws IOException If the writing or renaming fails.
+     */
+    public void save(Path file) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileOutputStream stream = new FileOutputStream(temp.toFile())) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeUTF(fingerprint);
+            out.writeInt(batch);
+            result.writeTo(out);
+            out.flush();
+
+            //Make sure the bytes are on disk before the rename makes them the checkpoint.
+            stream.getFD().sync();
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Read a checkpoint written by {@link #save}.
+     *
+     * @param file The checkpoint file.
+     * @return The checkpoint.
+     * @throws IOException              If the reading fails.
+     * @throws IllegalArgumentException If the file isn't a checkpoint this version can read.
+     */
+    public static Checkpoint load(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IllegalArgumentException(file + " isn't a checkpoint file");
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IllegalArgumentException(file + " has checkpoint version " + version + ", expected "
+                        + VERSION);
+            }
+            String fingerprint = in.readUTF();
+            int batch = in.readInt();
+            return new Checkpoint(fingerprint, batch, SimulationResult.readFrom(in));
+        }
+    }
+
+    /**
+     * @return Everything about the run that has to match for the counts to carry over.
+     */
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * @return The index of the next batch to run.
+     */
+    public int getBatch() {
+        return batch;
+    }
+
+    /**
+     * @return The merged counts from every batch before it.
+     */
+    public SimulationResult getResult() {
+        return result;
+    }
+}
@@ -0,0 +1,165 @@
+package simulation;
+
+/**
+ * Counts how often the Democrats win each pair of a set of competitive districts in the same simulated election. The
+ * outcomes are packed 64 elections to a word, with a block of {@link #WORDS} words per district, and at the end of
+ * each block every pair's count goes up by the popcount of the AND of the two districts' words. That is about 1/64 of
+ * the work of updating every pair every election, each pair's count is only loaded and stored once per block, and a
+ * block's words for a few hundred districts fit in L1 cache. Each task keeps its own matrix, and the matrices are
+ * merged once every task has finished, so the counts don't depend on the number of threads.
+ */
+public class CoWinMatrix {
+
+    /**
+     * How many words of outcomes each district gets per block.
+     */
+    private static final int WORDS = 8;
+
+    /**
+     * How many elections are in each block, 64 per word.
+     */
+    private static final int BLOCK = 64 * WORDS;
+
+    /**
+     * The compiled-order index of each district in the matrix.
+     */
+    private final int[] members;
+
+    /**
+     * The current block of outcomes, one bit per election, word by word: the first word of every district in the
+     * matrix, then the second, and so on, so recording an election writes one contiguous run.
+     */
+    private final long[] words;
+
+    /**
+     * The current block of outcomes rearranged district by district at the end of the block, so each pair's words are
+     * contiguous.
+     */
+    private final long[] rows;
+
+    /**
+     * How many times the Democrats won both districts of each pair, for the upper triangle including the diagonal,
+     * row by row.
+     */
+    private final long[] counts;
+
+    /**
+     * Which bit of the block the next election goes in.
+     */
+    private int bit;
+
+    /**
+     * How many elections have been recorded.
+     */
+    private long iterations;
+
+    /**
+     * Default constructor.
+     *
+     * @param members The compiled-order index of each district to include.
+     */
+    public CoWinMatrix(int[] members) {
+        this.members = members;
+        this.words = new long[members.length * WORDS];
+        this.rows = new long[members.length * WORDS];
+        this.counts = new long[members.length * (members.length + 1) / 2];
+    }
+
+    /**
+     * Record one simulated election.
+     *
+     * @param outcomes 1 for each random district the Democrats won and 0 otherwise, in compiled order.
+     */
+    public void recordIteration(int[] outcomes) {
+        int offset = (bit >>> 6) * members.length;
+        int shift = bit & 63;
+        for (int m = 0; m < members.length; m++) {
+            words[offset + m] |= (long) outcomes[members[m]] << shift;
+        }
+        iterations++;
+        if (++bit == BLOCK) {
+            flush();
+        }
+    }
+
+    /**
+     * Add the current partial block to the counts. Must be called once all elections are recorded, before the counts
+     * are read or merged.
+     */
+    public void flush() {
+        int n = members.length;
+        for (int w = 0; w < WORDS; w++) {
+            for (int m = 0; m < n; m++) {
+                rows[m * WORDS + w] = words[w * n + m];
+            }
+        }
+
+        int index = 0;
+        for (int a = 0; a < n; a++) {
+            int rowA = a * WORDS;
+            for (int b = a; b < n; b++) {
+                int rowB = b * WORDS;
+                int both = 0;
+                for (int w = 0; w < WORDS; w++) {
+                    both += Long.bitCount(rows[rowA + w] & rows[rowB + w]);
+                }
+                counts[index++] += both;
+            }
+        }
+        for (int i = 0; i < words.length; i++) {
+            words[i] = 0;
+        }
+        bit = 0;
+    }
+
+    /**
+     * Add the counts from another matrix over the same districts. Both must be flushed.
+     *
+     * @param other The matrix to add.
+     */
+    public void merge(CoWinMatrix other) {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        iterations += other.iterations;
+    }
+
+    /**
+     * @return The compiled-order index of each district in the matrix.
+     */
+    public int[] getMembers() {
+        return members;
+    }
+
+    /**
+     * @return How many elections have been recorded.
+     */
+    public long getIterations() {
+        return iterations;
+    }
+
+    /**
+     * @param a The index of one district in the matrix.
+     * @param b The index of another, or the same, district in the matrix.
+     * @return The probability that the Democrats win both districts.
+     */
+    public double getCoWinProbability(int a, int b) {
+        int low = Math.min(a, b);
+        int high = Math.max(a, b);
+        //Rows before the low one hold n, n - 1, ... entries.
+        int index = low * members.length - low * (low - 1) / 2 + (high - low);
+        return (double) counts[index] / iterations;
+    }
+
+    /**
+     * @param a The index of one district in the matrix.
+     * @param b The index of another district in the matrix.
+     * @return The correlation between the Democrats winning one district and winning the other, or NaN if either
+     * district never or always went to the Democrats.
+     */
+    public double getCorrelation(int a, int b) {
+        double pa = getCoWinProbability(a, a);
+        double pb = getCoWinProbability(b, b);
+        return (getCoWinProbability(a, b) - pa * pb) / Math.sqrt(pa * (1 - pa) * pb * (1 - pb));
+    }
+}
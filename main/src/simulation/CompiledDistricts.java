@@ -0,0 +1,335 @@
+package simulation;
+
+import dataholder.District;
+import util.Normal;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The districts to simulate, flattened into primitive arrays once before a run so the simulation loop doesn't have to
+ * call any getters or recompute anything that stays the same between iterations.
+ * <p>
+ * Once the national noise for an iteration is known, the Democratic vote percent in a district is normal with mean
+ * auspice + elasticity * noise and the residual standard deviation sqrt(auspiceStDv^2 - (nationalShiftStDv *
+ * elasticity)^2). The chance that Democrats win is then the standard normal CDF of offset + slope * noise, where offset
+ * = (auspice - 0.5) / residual and slope = elasticity / residual, both of which are calculated here.
+ */
+public class CompiledDistricts {
+
+    /**
+     * The districts as they were passed in.
+     */
+    private final District[] districts;
+
+    /**
+     * The index in {@link #districts} of each district whose outcome is random.
+     */
+    private final int[] activeIndices;
+
+    /**
+     * The AUSPICE Democratic vote percent of each random district.
+     */
+    private final double[] means;
+
+    /**
+     * The elasticity of each random district.
+     */
+    private final double[] elasticities;
+
+    /**
+     * The standard deviation of each random district's vote percent that isn't explained by the national noise.
+     */
+    private final double[] residualStDvs;
+
+    /**
+     * (mean - 0.5) / residual standard deviation for each random district.
+     */
+    private final double[] offsets;
+
+    /**
+     * elasticity / residual standard deviation for each random district.
+     */
+    private final double[] slopes;
+
+    /**
+     * Whether Democrats win each district, indexed like {@link #districts}. Only meaningful for districts whose outcome
+     * is fixed.
+     */
+    private final boolean[] fixedWins;
+
+    /**
+     * Whether each district's outcome is fixed, indexed like {@link #districts}.
+     */
+    private final boolean[] fixed;
+
+    /**
+     * How many seats Democrats win in every iteration from districts whose outcome is fixed.
+     */
+    private final int fixedSeats;
+
+    /**
+     * How many districts were left out of the simulation loop because their outcome is effectively certain, not
+     * counting the ones with an AUSPICE standard deviation of 0.
+     */
+    private final int numPruned;
+
+    /**
+     * The standard deviation of the national shift.
+     */
+    private final double nationalShiftStDv;
+
+    /**
+     * Compile and validate the districts without pruning. Districts with an AUSPICE standard deviation of 0 have a
+     * fixed outcome and are left out of the simulation loop.
+     *
+     * @param districts         The districts to simulate, with AUSPICE already calculated.
+     * @param nationalShiftStDv The standard deviation of the national shift, to be applied as noise to the AUSPICE
+     *                          predictions.
+     * @throws IllegalArgumentException If any district's residual variance is NaN or not positive, which happens when
+     *                                  the national noise explains more of the variance than the AUSPICE standard
+     *                                  deviation allows.
+     */
+    public CompiledDistricts(District[] districts, double nationalShiftStDv) {
+        this(districts, nationalShiftStDv, 0, 0);
+    }
+
+    /**
+     * Compile and validate the districts, and prune the safe ones. Districts with an AUSPICE standard deviation of 0,
+     * and districts whose win chance stays within the tolerance of 0 or 1 for every national noise within the limit,
+     * have a fixed outcome and are left out of the simulation loop.
+     * <p>
+     * The win chance only moves one way as the noise goes up, so checking both ends of the range is enough. A noise
+     * draw past the limit can still flip a pruned district in reality, but with a 6 standard deviation limit that
+     * happens in about 2 of every billion iterations, and even then only if the district is right at the tolerance.
+     *
+     * @param districts         The districts to simulate, with AUSPICE already calculated.
+     * @param nationalShiftStDv The standard deviation of the national shift, to be applied as noise to the AUSPICE
+     *                          predictions.
+     * @param pruneLimit        How many standard deviations of national noise the run can plausibly sample.
+     * @param pruneTolerance    How close to 0 or 1 a district's win chance has to stay to be pruned. 0 to not prune.
+     * @throws IllegalArgumentException If any district's residual variance is NaN or not positive, which happens when
+     *                                  the national noise explains more of the variance than the AUSPICE standard
+     *                                  deviation allows.
+     */
+    public CompiledDistricts(District[] districts, double nationalShiftStDv, double pruneLimit,
+                             double pruneTolerance) {
+        this(districts, getAuspiceMeans(districts), getAuspiceStDvs(districts), nationalShiftStDv, pruneLimit,
+                pruneTolerance);
+    }
+
+    /**
+     * Compile and validate the districts with AUSPICE means and standard deviations other than the ones the districts
+     * hold, e.g. for a scenario, and prune the safe ones the same way as
+     * {@link #CompiledDistricts(District[], double, double, double)}.
+     *
+     * @param districts         The districts to simulate, which supply the names and elasticities.
+     * @param auspiceMeans      The AUSPICE Democratic vote share of each district.
+     * @param auspiceStDvs      The AUSPICE standard deviation of each district.
+     * @param nationalShiftStDv The standard deviation of the national shift, to be applied as noise to the AUSPICE
+     *                          predictions.
+     * @param pruneLimit        How many standard deviations of national noise the run can plausibly sample.
+     * @param pruneTolerance    How close to 0 or 1 a district's win chance has to stay to be pruned. 0 to not prune.
+     * @throws IllegalArgumentException If any district's residual variance is NaN or not positive.
+     */
+    public CompiledDistricts(District[] districts, double[] auspiceMeans, double[] auspiceStDvs,
+                             double nationalShiftStDv, double pruneLimit, double pruneTolerance) {
+        this.districts = districts;
+        this.nationalShiftStDv = nationalShiftStDv;
+        this.fixedWins = new boolean[districts.length];
+        this.fixed = new boolean[districts.length];
+
+        List<Integer> active = new ArrayList<>();
+        List<String> errors = new ArrayList<>();
+        double[] allResiduals = new double[districts.length];
+        int seats = 0;
+        int pruned = 0;
+        for (int i = 0; i < districts.length; i++) {
+            District district = districts[i];
+            if (auspiceStDvs[i] == 0) {
+                //A standard deviation of 0 means the outcome is already decided, so these are decided here once.
+                fixed[i] = true;
+                fixedWins[i] = auspiceMeans[i] > 0.5;
+                seats += fixedWins[i] ? 1 : 0;
+                continue;
+            }
+
+            double nationalStDv = nationalShiftStDv * district.getElasticity();
+            double residualVariance = auspiceStDvs[i] * auspiceStDvs[i] - nationalStDv * nationalStDv;
+            if (Double.isNaN(residualVariance) || Double.isNaN(auspiceMeans[i]) || !(residualVariance > 0)) {
+                errors.add(district.getName() + " (auspice " + auspiceMeans[i] + ", stdev " + auspiceStDvs[i]
+                        + ", elasticity " + district.getElasticity() + ", residual variance " + residualVariance + ")");
+                continue;
+            }
+            allResiduals[i] = Math.sqrt(residualVariance);
+
+            if (pruneTolerance > 0) {
+                //The win chance at each end of the noise range the run will sample.
+                double margin = auspiceMeans[i] - 0.5;
+                double swing = Math.abs(district.getElasticity() * nationalShiftStDv * pruneLimit);
+                double low = Normal.standardNormalCDF((margin - swing) / allResiduals[i]);
+                double high = Normal.standardNormalCDF((margin + swing) / allResiduals[i]);
+                if (high < pruneTolerance || low > 1 - pruneTolerance) {
+                    fixed[i] = true;
+                    fixedWins[i] = low > 1 - pruneTolerance;
+                    seats += fixedWins[i] ? 1 : 0;
+                    pruned++;
+                    continue;
+                }
+            }
+            active.add(i);
+        }
+
+        //Report every bad district at once so they can all be fixed before the next run.
+        if (!errors.isEmpty()) {
+            throw new IllegalArgumentException("National shift standard deviation " + nationalShiftStDv
+                    + " leaves a NaN or non-positive residual variance in " + errors.size() + " district(s): "
+                    + String.join(", ", errors));
+        }
+        this.fixedSeats = seats;
+        this.numPruned = pruned;
+
+        int n = active.size();
+        this.activeIndices = new int[n];
+        this.means = new double[n];
+        this.elasticities = new double[n];
+        this.residualStDvs = new double[n];
+        this.offsets = new double[n];
+        this.slopes = new double[n];
+        for (int j = 0; j < n; j++) {
+            int i = active.get(j);
+            activeIndices[j] = i;
+            means[j] = auspiceMeans[i];
+            elasticities[j] = districts[i].getElasticity();
+            residualStDvs[j] = allResiduals[i];
+            offsets[j] = (means[j] - 0.5) / residualStDvs[j];
+            slopes[j] = elasticities[j] / residualStDvs[j];
+        }
+    }
+
+    /**
+     * @param districts The districts.
+     * @return The AUSPICE Democratic vote share of each district.
+     */
+    private static double[] getAuspiceMeans(District[] districts) {
+        double[] means = new double[districts.length];
+        for (int i = 0; i < districts.length; i++) {
+            means[i] = districts[i].getAuspiceDemPercent();
+        }
+        return means;
+    }
+
+    /**
+     * @param districts The districts.
+     * @return The AUSPICE standard deviation of each district.
+     */
+    private static double[] getAuspiceStDvs(District[] districts) {
+        double[] stDvs = new double[districts.length];
+        for (int i = 0; i < districts.length; i++) {
+            stDvs[i] = districts[i].getAuspiceStDv();
+        }
+        return stDvs;
+    }
+
+    /**
+     * @return The districts as they were passed in.
+     */
+    public District[] getDistricts() {
+        return districts;
+    }
+
+    /**
+     * @return The total number of districts, including the ones whose outcome is fixed.
+     */
+    public int getNumDistricts() {
+        return districts.length;
+    }
+
+    /**
+     * @return The number of districts whose outcome is random.
+     */
+    public int getNumActive() {
+        return activeIndices.length;
+    }
+
+    /**
+     * @return The index in {@link #getDistricts()} of each district whose outcome is random.
+     */
+    public int[] getActiveIndices() {
+        return activeIndices;
+    }
+
+    /**
+     * @return The AUSPICE Democratic vote percent of each random district.
+     */
+    public double[] getMeans() {
+        return means;
+    }
+
+    /**
+     * @return The elasticity of each random district.
+     */
+    public double[] getElasticities() {
+        return elasticities;
+    }
+
+    /**
+     * @return The standard deviation of each random district's vote percent that isn't explained by the national
+     * noise.
+     */
+    public double[] getResidualStDvs() {
+        return residualStDvs;
+    }
+
+    /**
+     * @return (mean - 0.5) / residual standard deviation for each random district.
+     */
+    public double[] getOffsets() {
+        return offsets;
+    }
+
+    /**
+     * @return elasticity / residual standard deviation for each random district.
+     */
+    public double[] getSlopes() {
+        return slopes;
+    }
+
+    /**
+     * @param district The index of a district in {@link #getDistricts()}.
+     * @return Whether that district's outcome is fixed.
+     */
+    public boolean isFixed(int district) {
+        return fixed[district];
+    }
+
+    /**
+     * @param district The index of a district in {@link #getDistricts()} whose outcome is fixed.
+     * @return Whether Democrats always win that district.
+     */
+    public boolean isFixedWin(int district) {
+        return fixedWins[district];
+    }
+
+    /**
+     * @return How many districts were left out of the simulation loop because their outcome is effectively certain,
+     * not counting the ones with an AUSPICE standard deviation of 0.
+     */
+    public int getNumPruned() {
+        return numPruned;
+    }
+
+    /**
+     * @return How many seats Democrats win in every iteration from districts whose outcome is fixed.
+     */
+    public int getFixedSeats() {
+        return fixedSeats;
+    }
+
+    /**
+     * @return The standard deviation of the national shift.
+     */
+    public double getNationalShiftStDv() {
+        return nationalShiftStDv;
+    }
+}
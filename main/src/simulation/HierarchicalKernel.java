@@ -0,0 +1,133 @@
+package simulation;
+
+import util.Normal;
+
+/**
+ * Decides each district with region- and state-level error on top of the national noise. Part of each district's
+ * residual variance is moved into a regional shock shared by every district in the region and a state shock shared by
+ * every district in the state, so each district's total variance stays the same but districts in the same state or
+ * region now move together. The shocks are standard normal, one per region and one per state, and are drawn once per
+ * election and turned into one shift per state before any district is decided, so the per-district cost is one more
+ * lookup and add than {@link ScalarKernel}.
+ */
+public class HierarchicalKernel implements WinChanceKernel {
+
+    /**
+     * (mean - 0.5) / idiosyncratic standard deviation for each random district.
+     */
+    private final double[] offsets;
+
+    /**
+     * elasticity / idiosyncratic standard deviation for each random district.
+     */
+    private final double[] slopes;
+
+    /**
+     * The index of each random district's state, in compiled order.
+     */
+    private final int[] districtStates;
+
+    /**
+     * The index of each state's region.
+     */
+    private final int[] stateRegions;
+
+    /**
+     * How far the regional shock moves the standardized win margin, per standard deviation of shock.
+     */
+    private final double regionalLoading;
+
+    /**
+     * How far the state shock moves the standardized win margin, per standard deviation of shock.
+     */
+    private final double stateLoading;
+
+    /**
+     * How many regions there are. The region shocks come first in the shocks array, then the state shocks.
+     */
+    private final int numRegions;
+
+    /**
+     * The shift in each state's standardized win margin from this election's regional and state shocks.
+     */
+    private final double[] stateShifts;
+
+    /**
+     * Whether to use {@link Normal#fastStandardNormalCDF(double)} instead of the exact CDF.
+     */
+    private final boolean fast;
+
+    /**
+     * Default constructor.
+     *
+     * @param districts     The districts to simulate.
+     * @param groups        Which state and region each district is in.
+     * @param regionalShare The share of each district's residual variance that comes from the regional shock.
+     * @param stateShare    The share of each district's residual variance that comes from the state shock.
+     * @param fast          Whether to use the table-interpolated CDF, which is within {@link Normal#FAST_MAX_ERROR}
+     *                      of the exact one.
+     * @throws IllegalArgumentException If either share is negative or they add up to 1 or more.
+     */
+    public HierarchicalKernel(CompiledDistricts districts, StateGroups groups, double regionalShare, double stateShare,
+                              boolean fast) {
+        if (!(regionalShare >= 0 && stateShare >= 0 && regionalShare + stateShare < 1)) {
+            throw new IllegalArgumentException("Regional and state variance shares must be non-negative and add up "
+                    + "to less than 1, got " + regionalShare + " and " + stateShare);
+        }
+        //Conditional on the shocks, only the idiosyncratic part of the residual is left, so rescale everything by it.
+        double idiosyncratic = Math.sqrt(1 - regionalShare - stateShare);
+        int numActive = districts.getNumActive();
+        this.offsets = new double[numActive];
+        this.slopes = new double[numActive];
+        this.districtStates = new int[numActive];
+        for (int j = 0; j < numActive; j++) {
+            offsets[j] = districts.getOffsets()[j] / idiosyncratic;
+            slopes[j] = districts.getSlopes()[j] / idiosyncratic;
+            districtStates[j] = groups.getState(districts.getActiveIndices()[j]);
+        }
+
+        this.numRegions = groups.getNumRegions();
+        this.stateRegions = new int[groups.getNumStates()];
+        for (int s = 0; s < stateRegions.length; s++) {
+            stateRegions[s] = groups.getRegion(s);
+        }
+        this.regionalLoading = Math.sqrt(regionalShare) / idiosyncratic;
+        this.stateLoading = Math.sqrt(stateShare) / idiosyncratic;
+        this.stateShifts = new double[groups.getNumStates()];
+        this.fast = fast;
+    }
+
+    @Override
+    public int getNumShocks() {
+        return numRegions + stateShifts.length;
+    }
+
+    @Override
+    public void setShocks(double[] shocks) {
+        for (int s = 0; s < stateShifts.length; s++) {
+            stateShifts[s] = regionalLoading * shocks[stateRegions[s]] + stateLoading * shocks[numRegions + s];
+        }
+    }
+
+    @Override
+    public int simulate(double noise, double[] uniforms, int[] outcomes) {
+        int seats = 0;
+        //Check the mode once here rather than once per district.
+        if (fast) {
+            for (int j = 0; j < offsets.length; j++) {
+                double z = offsets[j] + slopes[j] * noise + stateShifts[districtStates[j]];
+                int win = uniforms[j] < Normal.fastStandardNormalCDF(z) ? 1 : 0;
+                outcomes[j] = win;
+                seats += win;
+            }
+        } else {
+            for (int j = 0; j < offsets.length; j++) {
+                double z = offsets[j] + slopes[j] * noise + stateShifts[districtStates[j]];
+                int win = uniforms[j] < Normal.standardNormalCDF(z) ? 1 : 0;
+                outcomes[j] = win;
+                seats += win;
+            }
+        }
+        return seats;
+    }
+}
@@ -0,0 +1,147 @@
+package simulation;
+
+import rng.RngType;
+import util.Normal;
+import util.StudentT;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+
+/**
+ * Estimates the probability of a seat count region in the tails, such as a Democratic landslide, with importance
+ * sampling. The national noise is drawn from a normal distribution shifted so that the expected seat count sits on the
+ * edge of the region, and each simulated election is weighted by the likelihood ratio of its noise under the real
+ * distribution vs. the shifted one. About half of the draws land in the region instead of a few in a thousand, so the
+ * estimate needs far fewer iterations for the same precision.
+ */
+public class ImportanceSampler {
+
+    /**
+     * The furthest the noise is ever shifted, in standard deviations.
+     */
+    private static final double MAX_SHIFT = 8;
+
+    /**
+     * The districts to simulate.
+     */
+    private final CompiledDistricts districts;
+
+    /**
+     * The seed, thread count, generator, and kernel to use.
+     */
+    private final SimulationSettings settings;
+
+    /**
+     * Creates a new kernel for each task.
+     */
+    private final Supplier<WinChanceKernel> kernels;
+
+    /**
+     * Default constructor.
+     *
+     * @param districts The districts to simulate.
+     * @param settings  The seed, thread count, generator, and kernel to use. The thread count must be at least 1.
+     */
+    public ImportanceSampler(CompiledDistricts districts, SimulationSettings settings) {
+        if (settings.getThreads() < 1) {
+            throw new IllegalArgumentException("Need at least one thread, got " + settings.getThreads());
+        }
+        this.districts = districts;
+        this.settings = settings;
+        this.kernels = settings.getKernelType().prepare(districts, settings);
+    }
+
+    /**
+     * Estimate the probability that the Democrats' seat count lands in a region. The tasks get streams of their own,
+     * derived from the seed and the region, so different regions' estimates are independent of each other and of the
+     * main run.
+     *
+     * @param minSeats   The fewest seats in the region.
+     * @param maxSeats   The most seats in the region.
+     * @param iterations The number of elections to simulate.
+     * @return The estimate.
+     * @throws IllegalArgumentException If the region is empty.
+     */
+    public TailEstimate estimate(int minSeats, int maxSeats, int iterations) {
+        if (minSeats > maxSeats) {
+            throw new IllegalArgumentException("Empty seat region " + minSeats + "-" + maxSeats);
+        }
+        double shift = findShift(minSeats, maxSeats);
+        long seed = RngType.deriveSeed(settings.getSeed(), -1 - (((long) minSeats << 32) | maxSeats));
+        int threads = settings.getThreads();
+        StudentT national = settings.getNationalDegreesOfFreedom() < Double.POSITIVE_INFINITY
+                ? new StudentT(settings.getNationalDegreesOfFreedom()) : null;
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            List<TailTask> tasks = new ArrayList<>(threads);
+            for (int i = 0; i < threads; i++) {
+                int taskIterations = iterations / threads + (i < iterations % threads ? 1 : 0);
+                tasks.add(new TailTask(districts, kernels.get(), new TailEstimate(minSeats, maxSeats, shift),
+                        taskIterations, settings.getRngType().create(seed, i), national));
+            }
+            for (TailTask task : tasks) {
+                pool.execute(task);
+            }
+            //Merge in task order so the floating point sums come out the same every time.
+            TailEstimate result = new TailEstimate(minSeats, maxSeats, shift);
+            for (TailTask task : tasks) {
+                result.merge(task.join());
+            }
+            return result;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Find how far to shift the national noise so that the expected seat count is on the nearest edge of a region.
+     * The expected seat count only goes up with the noise, so this is a bisection. The expected seats assume normal
+     * district errors, which is close enough for picking a shift even when they aren't.
+     *
+     * @param minSeats The fewest seats in the region.
+     * @param maxSeats The most seats in the region.
+     * @return The shift in standard deviations of national noise, or 0 if the expected seat count is already in the
+     * region.
+     */
+    public double findShift(int minSeats, int maxSeats) {
+        double expected = getExpectedSeats(0);
+        double target;
+        if (expected < minSeats) {
+            target = minSeats;
+        } else if (expected > maxSeats) {
+            target = maxSeats;
+        } else {
+            return 0;
+        }
+
+        double low = -MAX_SHIFT;
+        double high = MAX_SHIFT;
+        for (int i = 0; i < 60; i++) {
+            double mid = (low + high) / 2;
+            if (getExpectedSeats(mid) < target) {
+                low = mid;
+            } else {
+                high = mid;
+            }
+        }
+        return (low + high) / 2;
+    }
+
+    /**
+     * @param z The national noise, in standard deviations.
+     * @return The expected number of seats the Democrats win with that noise.
+     */
+    public double getExpectedSeats(double z) {
+        double noise = districts.getNationalShiftStDv() * z;
+        double[] offsets = districts.getOffsets();
+        double[] slopes = districts.getSlopes();
+        double expected = districts.getFixedSeats();
+        for (int j = 0; j < districts.getNumActive(); j++) {
+            expected += Normal.standardNormalCDF(offsets[j] + slopes[j] * noise);
+        }
+        return expected;
+    }
+}
@@ -0,0 +1,28 @@
+package simulation;
+
+import rng.RandomStream;
+
+/**
+ * Plain Monte Carlo: every draw is independent.
+ */
+public class MonteCarloNoise implements NoiseSampler {
+
+    /**
+     * The task's random stream.
+     */
+    private final RandomStream random;
+
+    /**
+     * Default constructor.
+     *
+     * @param random The task's random stream.
+     */
+    public MonteCarloNoise(RandomStream random) {
+        this.random = random;
+    }
+
+    @Override
+    public double next() {
+        return random.nextGaussian();
+    }
+}
@@ -0,0 +1,91 @@
+package simulation;
+
+/**
+ * The counts from a batch of elections simulated across several {@link RaceGroup}s at once: each group's own seat and
+ * race counts, plus how often each combination of groups went to the Democrats together. Each simulation task keeps
+ * its own result, and the results are merged once every task has finished.
+ */
+public class MultiChamberResult {
+
+    /**
+     * The seat and race counts of each group, not counting the baselines.
+     */
+    private final SimulationResult[] groups;
+
+    /**
+     * How many times Democrats controlled exactly each combination of groups, indexed by a bit mask with bit g set if
+     * they controlled group g.
+     */
+    private final long[] joint;
+
+    /**
+     * Default constructor.
+     *
+     * @param groups The groups being simulated.
+     */
+    public MultiChamberResult(RaceGroup[] groups) {
+        this.groups = new SimulationResult[groups.length];
+        for (int g = 0; g < groups.length; g++) {
+            this.groups[g] = new SimulationResult(groups[g].getRaces().getNumDistricts());
+        }
+        this.joint = new long[1 << groups.length];
+    }
+
+    /**
+     * Record which groups Democrats controlled in a simulated election. The seats go into each group's own result.
+     *
+     * @param mask A bit mask with bit g set if Democrats controlled group g.
+     */
+    public void recordJoint(int mask) {
+        joint[mask]++;
+    }
+
+    /**
+     * Add the counts from another result.
+     *
+     * @param other A result for the same groups.
+     */
+    public void merge(MultiChamberResult other) {
+        for (int g = 0; g < groups.length; g++) {
+            groups[g].merge(other.groups[g]);
+        }
+        for (int mask = 0; mask < joint.length; mask++) {
+            joint[mask] += other.joint[mask];
+        }
+    }
+
+    /**
+     * @param group The index of a group.
+     * @return The seat and race counts of that group, not counting its baseline.
+     */
+    public SimulationResult getGroup(int group) {
+        return groups[group];
+    }
+
+    /**
+     * @return How many elections have been simulated.
+     */
+    public long getIterations() {
+        return groups[0].getIterations();
+    }
+
+    /**
+     * @param mask A bit mask with bit g set for each group Democrats control.
+     * @return The probability that Democrats control exactly those groups and none of the others.
+     */
+    public double getJointProbability(int mask) {
+        return (double) joint[mask] / getIterations();
+    }
+
+    /**
+     * @param mask A bit mask with bit g set for each group Democrats control.
+     * @return The probability that Democrats control at least those groups, whatever happens in the others.
+     */
+    public double getAllProbability(int mask) {
+        long count = 0;
+        for (int other = 0; other < joint.length; other++) {
+            count += (other & mask) == mask ? joint[other] : 0;
+        }
+        return (double) count / getIterations();
+    }
+}
@@ -0,0 +1,128 @@
+package simulation;
+
+import dataholder.District;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+
+/**
+ * Simulates several {@link RaceGroup}s together, like the House and the Senate, against the same national noise in
+ * each election, so the joint outcomes keep the correlation the national environment gives them. Under the
+ * hierarchical error model, every group also shares one set of regional and state shocks, so a Senate race and the
+ * House districts in the same state move together. Every race in every group is decided in one pass per election.
+ * Splits the work across a fork/join pool in batches and tasks the same way as {@link ParallelSimulator}, so a given
+ * seed, thread count, and batch size always give the same results.
+ */
+public class MultiChamberSimulator {
+
+    /**
+     * The most groups that can be simulated together, so the joint outcomes fit in an int bit mask with room to spare.
+     */
+    public static final int MAX_GROUPS = 16;
+
+    /**
+     * The groups to simulate.
+     */
+    private final RaceGroup[] groups;
+
+    /**
+     * The number of simulations, seed, thread count, generator, noise sampling, and kernel to use.
+     */
+    private final SimulationSettings settings;
+
+    /**
+     * A source of fresh kernels for each group, one per task.
+     */
+    private final List<Supplier<WinChanceKernel>> kernels;
+
+    /**
+     * Default constructor.
+     *
+     * @param groups   The groups to simulate, each with its own national shift standard deviation.
+     * @param settings The number of simulations, seed, thread count, generator, noise sampling, and kernel to use. The
+     *                 thread count must be at least 1.
+     * @throws IllegalArgumentException If there are no groups or more than {@link #MAX_GROUPS}, or no threads.
+     */
+    public MultiChamberSimulator(RaceGroup[] groups, SimulationSettings settings) {
+        if (groups.length == 0 || groups.length > MAX_GROUPS) {
+            throw new IllegalArgumentException("Need 1 to " + MAX_GROUPS + " race groups, got " + groups.length);
+        }
+        if (settings.getThreads() < 1) {
+            throw new IllegalArgumentException("Need at least one thread, got " + settings.getThreads());
+        }
+        this.groups = groups;
+        this.settings = settings;
+        this.kernels = new ArrayList<>(groups.length);
+
+        //Number the states across every group's races, so every kernel reads the same shocks the same way.
+        StateGroups numbering = null;
+        if (settings.getErrorModel() == SimulationSettings.ErrorModel.HIERARCHICAL) {
+            List<District> races = new ArrayList<>();
+            for (RaceGroup group : groups) {
+                races.addAll(Arrays.asList(group.getRaces().getDistricts()));
+            }
+            numbering = new StateGroups(races.toArray(new District[0]));
+        }
+        for (RaceGroup group : groups) {
+            kernels.add(settings.getKernelType().prepare(group.getRaces(), settings, numbering == null ? null
+                    : new StateGroups(group.getRaces().getDistricts(), numbering)));
+        }
+    }
+
+    /**
+     * Run the simulations in batches, with a {@link BatchSchedule}, until the iteration limit is reached, every
+     * standard error target that is set is met for the first group, normally the House, or the time budget runs out.
+     *
+     * @return The merged counts from every task in every batch.
+     */
+    public MultiChamberResult run() {
+        MultiChamberResult result = new MultiChamberResult(groups);
+
+        ForkJoinPool pool = new ForkJoinPool(settings.getThreads());
+        try {
+            BatchSchedule schedule = new BatchSchedule(settings, groups[0].getSeatsNeeded());
+            while (schedule.hasNext()) {
+                result.merge(runBatch(pool, schedule.getBatch(), schedule.getBatchIterations()));
+                schedule.next(result.getGroup(0));
+            }
+            return result;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Run one batch of simulations across the pool.
+     *
+     * @param pool       The pool to run the tasks on.
+     * @param batch      The index of this batch, which picks the streams its tasks use.
+     * @param iterations The number of generic ballots to simulate in this batch.
+     * @return The merged counts from every task in the batch.
+     */
+    private MultiChamberResult runBatch(ForkJoinPool pool, int batch, int iterations) {
+        int threads = settings.getThreads();
+
+        List<MultiChamberTask> tasks = new ArrayList<>(threads);
+        for (int i = 0; i < threads; i++) {
+            int taskIterations = iterations / threads + (i < iterations % threads ? 1 : 0);
+            WinChanceKernel[] taskKernels = new WinChanceKernel[groups.length];
+            for (int g = 0; g < groups.length; g++) {
+                taskKernels[g] = kernels.get(g).get();
+            }
+            tasks.add(new MultiChamberTask(groups, settings, taskKernels, taskIterations,
+                    settings.getRngType().create(settings.getSeed(), (long) batch * threads + i)));
+        }
+
+        for (MultiChamberTask task : tasks) {
+            pool.execute(task);
+        }
+        MultiChamberResult result = new MultiChamberResult(groups);
+        for (MultiChamberTask task : tasks) {
+            result.merge(task.join());
+        }
+        return result;
+    }
+}
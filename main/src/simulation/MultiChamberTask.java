@@ -0,0 +1,138 @@
+package simulation;
+
+import rng.RandomStream;
+
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Simulates a fixed number of elections across several {@link RaceGroup}s, with one national noise draw and one set of
+ * regional and state shocks per election shared by every group, its own random stream, and its own counts.
+ */
+public class MultiChamberTask extends RecursiveTask<MultiChamberResult> {
+
+    /**
+     * Serialization version. Tasks are never serialized, but RecursiveTask is Serializable.
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The groups to simulate.
+     */
+    private final RaceGroup[] groups;
+
+    /**
+     * The noise sampling strategy to use.
+     */
+    private final SimulationSettings settings;
+
+    /**
+     * The kernel that decides each group's races, used only by this task.
+     */
+    private final WinChanceKernel[] kernels;
+
+    /**
+     * The number of elections this task simulates.
+     */
+    private final int iterations;
+
+    /**
+     * The random stream used only by this task.
+     */
+    private final RandomStream random;
+
+    /**
+     * Default constructor.
+     *
+     * @param groups     The groups to simulate.
+     * @param settings   The noise sampling strategy to use.
+     * @param kernels    The kernel that decides each group's races, in the same order as the groups. Every kernel
+     *                   with shocks must number them the same way. Must not be shared with any other task.
+     * @param iterations The number of elections this task simulates.
+     * @param random     The random stream used only by this task. Must not be shared with any other task.
+     */
+    public MultiChamberTask(RaceGroup[] groups, SimulationSettings settings, WinChanceKernel[] kernels,
+                            int iterations, RandomStream random) {
+        this.groups = groups;
+        this.settings = settings;
+        this.kernels = kernels;
+        this.iterations = iterations;
+        this.random = random;
+    }
+
+    /**
+     * Run this task's share of the simulations.
+     *
+     * @return The counts from this task's simulations, with each group's counts recorded as one replicate.
+     */
+    @Override
+    protected MultiChamberResult compute() {
+        NoiseSampler noiseSampler = settings.createNoiseSampler(random, iterations);
+        MultiChamberResult result = new MultiChamberResult(groups);
+
+        //Pull each group's arrays out once, so the loop only touches primitive arrays.
+        int numGroups = groups.length;
+        double[] nationalShiftStDvs = new double[numGroups];
+        int[] fixedSeats = new int[numGroups];
+        int[] seatsNeeded = new int[numGroups];
+        double[][] uniforms = new double[numGroups][];
+        int[][] outcomes = new int[numGroups][];
+        long[][] activeWins = new long[numGroups][];
+        for (int g = 0; g < numGroups; g++) {
+            CompiledDistricts races = groups[g].getRaces();
+            nationalShiftStDvs[g] = races.getNationalShiftStDv();
+            fixedSeats[g] = races.getFixedSeats();
+            seatsNeeded[g] = groups[g].getSeatsNeeded();
+            uniforms[g] = new double[races.getNumActive()];
+            outcomes[g] = new int[races.getNumActive()];
+            activeWins[g] = new long[races.getNumActive()];
+        }
+        //The kernels without shocks take none, and the rest share one numbering, so one array covers them all.
+        int numShocks = 0;
+        for (WinChanceKernel kernel : kernels) {
+            numShocks = Math.max(numShocks, kernel.getNumShocks());
+        }
+        double[] shocks = new double[numShocks];
+
+        for (int i = 0; i < iterations; i++) {
+            //One standard national noise draw, scaled by each group's own national shift standard deviation.
+            double noise = noiseSampler.next();
+            if (numShocks > 0) {
+                random.fillGaussians(shocks);
+                for (WinChanceKernel kernel : kernels) {
+                    if (kernel.getNumShocks() > 0) {
+                        kernel.setShocks(shocks);
+                    }
+                }
+            }
+            int mask = 0;
+            for (int g = 0; g < numGroups; g++) {
+                random.fillUniforms(uniforms[g]);
+                int seats = fixedSeats[g] + kernels[g].simulate(nationalShiftStDvs[g] * noise, uniforms[g],
+                        outcomes[g]);
+                for (int j = 0; j < outcomes[g].length; j++) {
+                    activeWins[g][j] += outcomes[g][j];
+                }
+                result.getGroup(g).recordIteration(seats);
+                mask |= seats >= seatsNeeded[g] ? 1 << g : 0;
+            }
+            result.recordJoint(mask);
+        }
+
+        //Move the wins back into each group's original race order.
+        for (int g = 0; g < numGroups; g++) {
+            CompiledDistricts races = groups[g].getRaces();
+            SimulationResult counts = result.getGroup(g);
+            int[] activeIndices = races.getActiveIndices();
+            for (int j = 0; j < activeIndices.length; j++) {
+                counts.recordWins(activeIndices[j], activeWins[g][j]);
+            }
+            for (int r = 0; r < races.getNumDistricts(); r++) {
+                if (races.isFixed(r) && races.isFixedWin(r)) {
+                    counts.recordWins(r, iterations);
+                }
+            }
+            counts.recordReplicate(seatsNeeded[g]);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,14 @@
+package simulation;
+
+/**
+ * Draws the standard normal national noise for each iteration of one simulation task. The draws can depend on each
+ * other, e.g. antithetic pairs or stratified draws, but every task's draws are independent of every other task's, so
+ * each task is an independent, unbiased replicate of the whole simulation.
+ */
+public interface NoiseSampler {
+
+    /**
+     * @return The standard normal draw for the next iteration.
+     */
+    double next();
+}
@@ -0,0 +1,196 @@
+package simulation;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Answers conditional questions, like the majority probability if two given districts both flip, from the elections
+ * in an {@link OutcomeStore} file instead of simulating again. Each condition becomes a bit mask, so checking an
+ * election is a few ANDs and its seat count is a few bit counts, and a million elections take milliseconds.
+ */
+public class OutcomeQuery {
+
+    /**
+     * The most bytes one mapping can cover.
+     */
+    private static final long MAX_MAPPING = Integer.MAX_VALUE;
+
+    /**
+     * The district names, in the original order.
+     */
+    private final String[] names;
+
+    /**
+     * The index of each district, by name.
+     */
+    private final Map<String, Integer> indices;
+
+    /**
+     * How many longs each election takes.
+     */
+    private final int words;
+
+    /**
+     * How many elections the file has.
+     */
+    private final long iterations;
+
+    /**
+     * The elections, split into mappings of at most {@link #MAX_MAPPING} bytes that each hold whole elections.
+     */
+    private final LongBuffer[] chunks;
+
+    /**
+     * Default constructor. Reads the header and maps the elections.
+     *
+     * @param file The outcome file to read.
+     * @throws IOException              If the file can't be read.
+     * @throws IllegalArgumentException If the file isn't an outcome file this version can read.
+     */
+    public OutcomeQuery(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer fixed = read(channel, 0, OutcomeStore.ITERATIONS_OFFSET + Long.BYTES);
+            if (fixed.getInt() != OutcomeStore.MAGIC) {
+                throw new IllegalArgumentException(file + " isn't an outcome file");
+            }
+            int version = fixed.getInt();
+            if (version != OutcomeStore.VERSION) {
+                throw new IllegalArgumentException(file + " has outcome file version " + version + ", expected "
+                        + OutcomeStore.VERSION);
+            }
+            int numDistricts = fixed.getInt();
+            this.words = fixed.getInt();
+            this.iterations = fixed.getLong();
+
+            //The names are variable length, so read them one at a time.
+            this.names = new String[numDistricts];
+            this.indices = new HashMap<>();
+            long position = OutcomeStore.ITERATIONS_OFFSET + Long.BYTES;
+            for (int i = 0; i < numDistricts; i++) {
+                int length = read(channel, position, Short.BYTES).getShort();
+                byte[] name = new byte[length];
+                read(channel, position + Short.BYTES, length).get(name);
+                names[i] = new String(name, StandardCharsets.UTF_8);
+                indices.put(names[i], i);
+                position += Short.BYTES + length;
+            }
+            long headerBytes = (position + 7) / 8 * 8;
+
+            long recordBytes = (long) words * Long.BYTES;
+            long perChunk = MAX_MAPPING / recordBytes;
+            this.chunks = new LongBuffer[(int) ((iterations + perChunk - 1) / perChunk)];
+            for (int c = 0; c < chunks.length; c++) {
+                long first = c * perChunk;
+                long count = Math.min(perChunk, iterations - first);
+                chunks[c] = channel.map(FileChannel.MapMode.READ_ONLY, headerBytes + first * recordBytes,
+                        count * recordBytes).order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+            }
+        }
+    }
+
+    /**
+     * Read part of a file fully.
+     *
+     * @param channel  The open file.
+     * @param position Where to start reading.
+     * @param length   How many bytes to read.
+     * @return The bytes, little-endian and ready to read.
+     * @throws IOException              If the file can't be read.
+     * @throws IllegalArgumentException If the file ends first.
+     */
+    private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IllegalArgumentException("Outcome file header is cut off");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * @param name The name of a district.
+     * @return The index of that district.
+     * @throws IllegalArgumentException If there's no district with that name.
+     */
+    public int getDistrictIndex(String name) {
+        Integer index = indices.get(name);
+        if (index == null) {
+            throw new IllegalArgumentException("No district named " + name + " in the outcome file");
+        }
+        return index;
+    }
+
+    /**
+     * @param index The index of a district.
+     * @return The name of that district.
+     */
+    public String getDistrictName(int index) {
+        return names[index];
+    }
+
+    /**
+     * @return How many districts each election has.
+     */
+    public int getNumDistricts() {
+        return names.length;
+    }
+
+    /**
+     * @return How many elections the file has.
+     */
+    public long getIterations() {
+        return iterations;
+    }
+
+    /**
+     * Count the Democratic seats in every election that meets all of the conditions.
+     *
+     * @param demWins The indices of the districts Democrats must win.
+     * @param repWins The indices of the districts Democrats must lose.
+     * @return How many elections meeting the conditions had each number of Democratic seats, from 0 to the number of
+     * districts. Sums to the number of elections meeting the conditions, which is 0 if they never happened together.
+     */
+    public long[] getSeatHistogram(int[] demWins, int[] repWins) {
+        long[] winMask = new long[words];
+        long[] lossMask = new long[words];
+        for (int i : demWins) {
+            winMask[i >>> 6] |= 1L << i;
+        }
+        for (int i : repWins) {
+            lossMask[i >>> 6] |= 1L << i;
+        }
+
+        long[] histogram = new long[names.length + 1];
+        long[] record = new long[words];
+        for (LongBuffer chunk : chunks) {
+            int records = chunk.capacity() / words;
+            for (int r = 0; r < records; r++) {
+                chunk.get(r * words, record);
+
+                //An election meets the conditions if no required win is missing and no required loss is there.
+                long missed = 0;
+                for (int w = 0; w < words; w++) {
+                    missed |= (record[w] & winMask[w]) ^ winMask[w] | record[w] & lossMask[w];
+                }
+                if (missed == 0) {
+                    int seats = 0;
+                    for (int w = 0; w < words; w++) {
+                        seats += Long.bitCount(record[w]);
+                    }
+                    histogram[seats]++;
+                }
+            }
+        }
+        return histogram;
+    }
+}
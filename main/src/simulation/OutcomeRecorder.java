@@ -0,0 +1,80 @@
+package simulation;
+
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+
+/**
+ * Writes consecutive elections into one task's slice of an {@link OutcomeStore}. Used only by that task.
+ */
+public class OutcomeRecorder {
+
+    /**
+     * The task's slice of the file, as mapped, or null once the recorder is finished.
+     */
+    private MappedByteBuffer mapping;
+
+    /**
+     * The task's slice of the file, as longs, or null once the recorder is finished.
+     */
+    private LongBuffer slice;
+
+    /**
+     * The original index of each random district, in compiled order.
+     */
+    private final int[] activeIndices;
+
+    /**
+     * The bits of the fixed districts Democrats always win, which every election starts from.
+     */
+    private final long[] fixedWins;
+
+    /**
+     * The election being built.
+     */
+    private final long[] record;
+
+    /**
+     * Default constructor.
+     *
+     * @param slice     The task's slice of the file.
+     * @param districts The districts being simulated.
+     * @param words     How many longs each election takes.
+     */
+    OutcomeRecorder(MappedByteBuffer slice, CompiledDistricts districts, int words) {
+        this.mapping = slice;
+        this.slice = slice.order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+        this.activeIndices = districts.getActiveIndices();
+        this.fixedWins = new long[words];
+        for (int i = 0; i < districts.getNumDistricts(); i++) {
+            if (districts.isFixed(i) && districts.isFixedWin(i)) {
+                fixedWins[i >>> 6] |= 1L << i;
+            }
+        }
+        this.record = new long[words];
+    }
+
+    /**
+     * Record the next election.
+     *
+     * @param outcomes 1 if Democrats won each random district and 0 if not, in compiled order.
+     */
+    public void recordIteration(int[] outcomes) {
+        System.arraycopy(fixedWins, 0, record, 0, record.length);
+        for (int j = 0; j < activeIndices.length; j++) {
+            int i = activeIndices[j];
+            record[i >>> 6] |= (long) outcomes[j] << i;
+        }
+        slice.put(record);
+    }
+
+    /**
+     * Flush the slice to disk and drop it, so nothing keeps the mapping alive once the task is done. Must be called
+     * once the task has recorded its last election.
+     */
+    public void finish() {
+        mapping.force();
+        mapping = null;
+        slice = null;
+    }
+}
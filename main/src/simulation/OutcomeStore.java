@@ -0,0 +1,143 @@
+package simulation;
+
+import dataholder.District;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A file holding every simulated election's district outcomes as a bitset, one bit per district in the original
+ * district order, set if Democrats won it. Each election takes ceil(n / 64) longs, so 435 districts take 7 longs, or 56
+ * bytes, and a million elections take about 56 MB. {@link OutcomeQuery} reads the file back to answer conditional
+ * questions without simulating again.
+ * <p>
+ * The file is little-endian. The header is the magic number, the format version, the number of districts, and the
+ * number of longs per election as ints, then the number of elections as a long, then each district name as a short
+ * byte length followed by its UTF-8 bytes, padded with zeros to a multiple of 8 bytes. The elections follow in order.
+ * <p>
+ * Each simulation task maps its own slice of the file with {@link #openRecorder}, so tasks write in parallel without
+ * sharing anything.
+ */
+public class OutcomeStore {
+
+    /**
+     * The magic number at the start of every outcome file, "OUTC" in ASCII.
+     */
+    public static final int MAGIC = 0x4F555443;
+
+    /**
+     * The version of the file format.
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * Where the number of elections is in the header.
+     */
+    static final int ITERATIONS_OFFSET = 16;
+
+    /**
+     * The open file.
+     */
+    private final FileChannel channel;
+
+    /**
+     * How many longs each election takes.
+     */
+    private final int words;
+
+    /**
+     * How many bytes the header takes, which is where the first election starts.
+     */
+    private final long headerBytes;
+
+    /**
+     * The most elections the file has room for.
+     */
+    private final long capacity;
+
+    /**
+     * Default constructor. Creates or overwrites the file and writes the header, with no elections yet.
+     *
+     * @param file      The file to write.
+     * @param districts The districts being simulated, in the original order.
+     * @param capacity  The most elections that will be recorded.
+     * @throws IOException If the file can't be created or written.
+     */
+    public OutcomeStore(Path file, District[] districts, long capacity) throws IOException {
+        this.words = (districts.length + 63) / 64;
+        this.capacity = capacity;
+
+        byte[][] names = new byte[districts.length][];
+        int length = ITERATIONS_OFFSET + Long.BYTES;
+        for (int i = 0; i < districts.length; i++) {
+            names[i] = districts[i].getName().getBytes(StandardCharsets.UTF_8);
+            length += Short.BYTES + names[i].length;
+        }
+        this.headerBytes = (length + 7) / 8 * 8;
+
+        ByteBuffer header = ByteBuffer.allocate((int) headerBytes).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putInt(VERSION).putInt(districts.length).putInt(words).putLong(0);
+        for (byte[] name : names) {
+            header.putShort((short) name.length).put(name);
+        }
+        header.clear();
+
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        while (header.hasRemaining()) {
+            channel.write(header, header.position());
+        }
+    }
+
+    /**
+     * Map the slice of the file for a run of consecutive elections, for one task to record into.
+     *
+     * @param districts      The districts being simulated, compiled from the districts the store was made with.
+     * @param firstIteration The index of the first election in the slice, counting from 0.
+     * @param iterations     How many elections are in the slice.
+     * @return A recorder that writes those elections, in order.
+     * @throws IOException              If the file can't be mapped.
+     * @throws IllegalArgumentException If the slice goes past the capacity of the store.
+     */
+    public OutcomeRecorder openRecorder(CompiledDistricts districts, long firstIteration, int iterations)
+            throws IOException {
+        if (firstIteration < 0 || firstIteration + iterations > capacity) {
+            throw new IllegalArgumentException("Elections " + firstIteration + " to " + (firstIteration + iterations)
+                    + " don't fit in an outcome store with room for " + capacity);
+        }
+        long recordBytes = (long) words * Long.BYTES;
+        return new OutcomeRecorder(channel.map(FileChannel.MapMode.READ_WRITE,
+                headerBytes + firstIteration * recordBytes, iterations * recordBytes), districts, words);
+    }
+
+    /**
+     * Write how many elections were recorded into the header, cut off the room that wasn't used if the run stopped
+     * early, and close the file. Every recorder must be finished first.
+     *
+     * @param iterations How many elections were recorded, all at the start of the file.
+     * @throws IOException If the file can't be written.
+     */
+    public void close(long iterations) throws IOException {
+        ByteBuffer count = ByteBuffer.allocate(Long.BYTES).order(ByteOrder.LITTLE_ENDIAN).putLong(iterations);
+        count.flip();
+        channel.write(count, ITERATIONS_OFFSET);
+        channel.force(false);
+
+        //The recorders have flushed and dropped their slices, but Java only unmaps them once they're collected, and
+        // some platforms refuse to shrink a file that's still mapped. The header says how many elections there are, so
+        // readers never look at an unused tail, and it's fine to leave one if the file can't be shrunk yet.
+        if (iterations < capacity) {
+            try {
+                channel.truncate(headerBytes + iterations * words * Long.BYTES);
+            } catch (IOException e) {
+                System.out.println("Couldn't trim the unused room off the outcome file: " + e.getMessage());
+            }
+        }
+        channel.close();
+    }
+}
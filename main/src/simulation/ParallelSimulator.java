@@ -0,0 +1,265 @@
+package simulation;
+
+import util.Normal;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Splits the simulations across a fork/join pool. Each task gets its own random stream, derived from the seed and the
+ * task's index, so a given seed, thread count, and batch size always give the same results. A run that stops early
+ * because of its time budget still stops on a batch boundary, so its results match the same number of batches of an
+ * unlimited run.
+ */
+public class ParallelSimulator {
+
+    /**
+     * The districts to simulate.
+     */
+    private final CompiledDistricts districts;
+
+    /**
+     * The number of simulations, seed, thread count, generator, and kernel to use.
+     */
+    private final SimulationSettings settings;
+
+    /**
+     * Creates a new kernel for each task.
+     */
+    private final Supplier<WinChanceKernel> kernels;
+
+    /**
+     * The compiled-order index of each competitive district in the co-win matrix, or null if it isn't kept.
+     */
+    private final int[] coWinMembers;
+
+    /**
+     * The co-win counts merged from every task that has finished, or null if they aren't kept.
+     */
+    private CoWinMatrix coWins;
+
+    /**
+     * The live counts of the current run, or null if progress isn't monitored or no run has started.
+     */
+    private volatile ProgressMonitor progress;
+
+    /**
+     * Default constructor.
+     *
+     * @param districts The districts to simulate.
+     * @param settings  The number of simulations, seed, thread count, generator, and kernel to use. The thread count is
+     *                  also the number of tasks, and must be at least 1.
+     * @throws IllegalArgumentException If there are no threads, or checkpoints are combined with the co-win matrix or
+     *                                  an outcome file, which checkpoints don't cover.
+     */
+    public ParallelSimulator(CompiledDistricts districts, SimulationSettings settings) {
+        if (settings.getThreads() < 1) {
+            throw new IllegalArgumentException("Need at least one thread, got " + settings.getThreads());
+        }
+        if (settings.getCheckpointFile() != null && (settings.isCoWins() || settings.getOutcomeFile() != null)) {
+            throw new IllegalArgumentException("Checkpoints only cover the seat and district counts, so they can't be "
+                    + "combined with the co-win matrix or an outcome file");
+        }
+        this.districts = districts;
+        this.settings = settings;
+        this.kernels = settings.getKernelType().prepare(districts, settings);
+
+        //Only districts that could plausibly go either way are worth a row in the co-win matrix.
+        if (settings.isCoWins()) {
+            List<Integer> members = new ArrayList<>();
+            for (int j = 0; j < districts.getNumActive(); j++) {
+                double spread = districts.getSlopes()[j] * districts.getNationalShiftStDv();
+                double winChance = Normal.standardNormalCDF(districts.getOffsets()[j] / Math.sqrt(1 + spread * spread));
+                if (winChance >= settings.getCoWinThreshold() && winChance <= 1 - settings.getCoWinThreshold()) {
+                    members.add(j);
+                }
+            }
+            this.coWinMembers = members.stream().mapToInt(Integer::intValue).toArray();
+            this.coWins = new CoWinMatrix(coWinMembers);
+        } else {
+            this.coWinMembers = null;
+        }
+    }
+
+    /**
+     * Run the simulations in batches, with a {@link BatchSchedule}, until the iteration limit is reached, every
+     * standard error target that is set is met, or the time budget runs out, whichever comes first. Every batch is
+     * split across the threads, and each task in each batch gets its own stream. If the settings name an outcome file,
+     * every election's district outcomes are stored there too. If they name a checkpoint file, the counts are saved
+     * there every few batches and at the end, and a resumed run continues from the saved batch with the saved counts.
+     *
+     * @return The merged counts from every task in every batch.
+     * @throws IOException              If the outcome or checkpoint file can't be written, or the checkpoint file can't
+     *                                  be read.
+     * @throws IllegalArgumentException If the checkpoint being resumed is from a run with different settings.
+     */
+    public SimulationResult run() throws IOException {
+        SimulationResult result = new SimulationResult(districts.getNumDistricts());
+        int batch = settings.getShardIndex();
+
+        //Pick up where the last checkpoint left off, if it's from a run with the same settings and shard.
+        Path checkpointFile = settings.getCheckpointFile() == null ? null : Paths.get(settings.getCheckpointFile());
+        String fingerprint = Checkpoint.getFingerprint(districts, settings) + ",shard=" + settings.getShardIndex()
+                + "/" + settings.getShardCount();
+        if (checkpointFile != null && settings.isResume() && Files.exists(checkpointFile)) {
+            Checkpoint checkpoint = Checkpoint.load(checkpointFile);
+            if (!checkpoint.getFingerprint().equals(fingerprint)) {
+                throw new IllegalArgumentException("Checkpoint " + checkpointFile + " is from a run with different "
+                        + "settings: " + checkpoint.getFingerprint() + ", expected " + fingerprint);
+            }
+            result = checkpoint.getResult();
+            batch = checkpoint.getBatch();
+            System.out.println("Resuming from batch " + batch + " after " + result.getIterations() + " simulations");
+        }
+
+        OutcomeStore store = settings.getOutcomeFile() == null ? null
+                : new OutcomeStore(Paths.get(settings.getOutcomeFile()), districts.getDistricts(),
+                settings.getIterations());
+
+        //Report progress from a background thread, which only ever reads the published counts.
+        ScheduledExecutorService reporter = null;
+        if (settings.getProgressMillis() > 0) {
+            ProgressMonitor monitor = new ProgressMonitor(result.getHistogram(), settings.getThreads(),
+                    getShardIterations(), settings.getMajority());
+            progress = monitor;
+            reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "progress");
+                thread.setDaemon(true);
+                return thread;
+            });
+            reporter.scheduleAtFixedRate(() -> System.out.println(monitor.getReport()), settings.getProgressMillis(),
+                    settings.getProgressMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(settings.getThreads());
+        try {
+            BatchSchedule schedule = new BatchSchedule(settings, settings.getMajority(), batch);
+            int batchesRun = 0;
+            while (schedule.hasNext()) {
+                int batchIterations = schedule.getBatchIterations();
+                result.merge(runBatch(pool, schedule.getBatch(), batchIterations, store, result.getIterations()));
+                schedule.next(result);
+                batchesRun++;
+                boolean done = !schedule.hasNext();
+                //Only a full batch leaves the run where an uninterrupted one would be, so partial ones aren't saved.
+                if (checkpointFile != null && batchIterations == settings.getBatchSize()
+                        && (done || batchesRun % settings.getCheckpointBatches() == 0)) {
+                    new Checkpoint(fingerprint, schedule.getBatch(), result).save(checkpointFile);
+                }
+            }
+            if (store != null) {
+                store.close(result.getIterations());
+            }
+            return result;
+        } finally {
+            pool.shutdown();
+            if (reporter != null) {
+                reporter.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * @return How many simulations this shard runs if nothing stops it early: the simulations in every shard count-th
+     * batch, starting from the shard index.
+     */
+    public long getShardIterations() {
+        long batchSize = settings.getBatchSize();
+        long batches = (settings.getIterations() + batchSize - 1) / batchSize;
+        long shardBatches = batches > settings.getShardIndex()
+                ? (batches - 1 - settings.getShardIndex()) / settings.getShardCount() + 1 : 0;
+        long iterations = shardBatches * batchSize;
+        if (shardBatches > 0 && (batches - 1) % settings.getShardCount() == settings.getShardIndex()) {
+            iterations -= batches * batchSize - settings.getIterations();
+        }
+        return iterations;
+    }
+
+    /**
+     * Run one batch of simulations across the pool.
+     *
+     * @param pool       The pool to run the tasks on.
+     * @param batch      The index of this batch, which picks the streams its tasks use.
+     * @param iterations The number of generic ballots to simulate in this batch.
+     * @param store      The outcome file to store the elections in, or null to not store them.
+     * @param done       How many elections earlier batches simulated, which is where this batch starts in the store.
+     * @return The merged counts from every task in the batch.
+     * @throws IOException If the outcome file can't be mapped.
+     */
+    private SimulationResult runBatch(ForkJoinPool pool, int batch, int iterations, OutcomeStore store, long done)
+            throws IOException {
+        int threads = settings.getThreads();
+
+        //Split the iterations as evenly as possible, and give each task its own stream and its own slice of the store.
+        List<SimulationTask> tasks = new ArrayList<>(threads);
+        long first = done;
+        for (int i = 0; i < threads; i++) {
+            int taskIterations = iterations / threads + (i < iterations % threads ? 1 : 0);
+            tasks.add(new SimulationTask(districts, settings, kernels.get(), taskIterations,
+                    settings.getRngType().create(settings.getSeed(), (long) batch * threads + i),
+                    coWinMembers == null ? null : new CoWinMatrix(coWinMembers),
+                    store == null ? null : store.openRecorder(districts, first, taskIterations),
+                    progress == null ? null : progress.getCell(i)));
+            first += taskIterations;
+        }
+
+        for (SimulationTask task : tasks) {
+            pool.execute(task);
+        }
+        //Merge in task order. The counts are integers, so the order doesn't change the answer anyway.
+        SimulationResult result = new SimulationResult(districts.getNumDistricts());
+        for (SimulationTask task : tasks) {
+            result.merge(task.join());
+            if (coWins != null) {
+                coWins.merge(task.getCoWins());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return The co-win counts over the competitive districts from every batch run so far, or null if they aren't
+     * kept.
+     */
+    public CoWinMatrix getCoWins() {
+        return coWins;
+    }
+
+    /**
+     * @return The live counts of the current or last run, which can be read while it continues, or null if progress
+     * isn't monitored or no run has started.
+     */
+    public ProgressMonitor getProgress() {
+        return progress;
+    }
+
+    /**
+     * The standard error of the majority probability, calculated for this run's noise sampling strategy by
+     * {@link BatchSchedule#getMajorityStdError}.
+     *
+     * @param result The counts so far.
+     * @return The standard error of the majority probability, or NaN if there aren't enough replicates yet.
+     */
+    public double getMajorityStdError(SimulationResult result) {
+        return BatchSchedule.getMajorityStdError(settings, result, settings.getMajority());
+    }
+
+    /**
+     * The standard error of the expected seats, calculated the same way as {@link #getMajorityStdError}.
+     *
+     * @param result The counts so far.
+     * @return The standard error of the expected seats, or NaN if there aren't enough replicates yet.
+     */
+    public double getSeatsStdError(SimulationResult result) {
+        return BatchSchedule.getSeatsStdError(settings, result);
+    }
+}
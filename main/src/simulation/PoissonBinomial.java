@@ -0,0 +1,153 @@
+package simulation;
+
+/**
+ * The distribution of the number of successes in independent Bernoulli trials with different probabilities, which is
+ * the seat count once the national noise is fixed.
+ */
+public class PoissonBinomial {
+
+    /**
+     * Above this many trials, split the trials in half, find each half's distribution, and convolve them with an FFT
+     * instead of running the O(n^2) dynamic program over all of them.
+     */
+    private static final int FFT_THRESHOLD = 1024;
+
+    /**
+     * Calculate the distribution with the O(n^2) dynamic program for small sets of trials, or by divide and conquer
+     * with FFT convolution, O(n log^2 n), for large ones.
+     *
+     * @param probabilities The success probability of each trial.
+     * @return The probability of each number of successes, from 0 to probabilities.length.
+     */
+    public static double[] distribution(double[] probabilities) {
+        return distribution(probabilities, 0, probabilities.length);
+    }
+
+    /**
+     * @param probabilities The success probability of each trial.
+     * @param from          The first trial to include.
+     * @param to            One past the last trial to include.
+     * @return The probability of each number of successes among those trials.
+     */
+    private static double[] distribution(double[] probabilities, int from, int to) {
+        if (to - from <= FFT_THRESHOLD) {
+            return dynamicProgram(probabilities, from, to);
+        }
+        int middle = (from + to) >>> 1;
+        return convolve(distribution(probabilities, from, middle), distribution(probabilities, middle, to));
+    }
+
+    /**
+     * Add one trial at a time. After adding trial k, out[s] is the probability of s successes among the first k trials.
+     *
+     * @param probabilities The success probability of each trial.
+     * @param from          The first trial to include.
+     * @param to            One past the last trial to include.
+     * @return The probability of each number of successes among those trials.
+     */
+    private static double[] dynamicProgram(double[] probabilities, int from, int to) {
+        double[] out = new double[to - from + 1];
+        out[0] = 1;
+        int n = 0;
+        for (int k = from; k < to; k++) {
+            double p = probabilities[k];
+            double q = 1 - p;
+            n++;
+            //Go from the top down so each entry is updated from the previous trial's values.
+            out[n] = out[n - 1] * p;
+            for (int s = n - 1; s > 0; s--) {
+                out[s] = out[s] * q + out[s - 1] * p;
+            }
+            out[0] *= q;
+        }
+        return out;
+    }
+
+    /**
+     * Convolve two distributions with a radix-2 FFT.
+     *
+     * @param a The first distribution.
+     * @param b The second distribution.
+     * @return The distribution of the sum.
+     */
+    private static double[] convolve(double[] a, double[] b) {
+        int length = a.length + b.length - 1;
+        int size = Integer.highestOneBit(length - 1) << 1;
+        double[] re = new double[size];
+        double[] im = new double[size];
+        //Pack a into the real part and b into the imaginary part, so one forward transform does both.
+        System.arraycopy(a, 0, re, 0, a.length);
+        System.arraycopy(b, 0, im, 0, b.length);
+        fft(re, im, false);
+
+        //Unpack the two spectra and multiply them: A[k] = (X[k] + conj(X[-k])) / 2, B[k] = (X[k] - conj(X[-k])) / 2i.
+        double[] productRe = new double[size];
+        double[] productIm = new double[size];
+        for (int k = 0; k < size; k++) {
+            int mirror = (size - k) & (size - 1);
+            double aRe = (re[k] + re[mirror]) / 2;
+            double aIm = (im[k] - im[mirror]) / 2;
+            double bRe = (im[k] + im[mirror]) / 2;
+            double bIm = (re[mirror] - re[k]) / 2;
+            productRe[k] = aRe * bRe - aIm * bIm;
+            productIm[k] = aRe * bIm + aIm * bRe;
+        }
+        fft(productRe, productIm, true);
+
+        double[] out = new double[length];
+        for (int i = 0; i < length; i++) {
+            //Rounding can leave tiny negative probabilities in the far tails.
+            out[i] = Math.max(productRe[i] / size, 0);
+        }
+        return out;
+    }
+
+    /**
+     * In-place iterative radix-2 FFT.
+     *
+     * @param re      The real parts. The length must be a power of 2.
+     * @param im      The imaginary parts.
+     * @param inverse Whether to do the inverse transform, without the 1 / n scaling.
+     */
+    private static void fft(double[] re, double[] im, boolean inverse) {
+        int n = re.length;
+        //Bit-reversal permutation.
+        for (int i = 1, j = 0; i < n; i++) {
+            int bit = n >> 1;
+            for (; (j & bit) != 0; bit >>= 1) {
+                j ^= bit;
+            }
+            j ^= bit;
+            if (i < j) {
+                double t = re[i];
+                re[i] = re[j];
+                re[j] = t;
+                t = im[i];
+                im[i] = im[j];
+                im[j] = t;
+            }
+        }
+        for (int length = 2; length <= n; length <<= 1) {
+            double angle = 2 * Math.PI / length * (inverse ? 1 : -1);
+            double stepRe = Math.cos(angle);
+            double stepIm = Math.sin(angle);
+            for (int start = 0; start < n; start += length) {
+                double wRe = 1;
+                double wIm = 0;
+                for (int k = 0; k < length / 2; k++) {
+                    int even = start + k;
+                    int odd = even + length / 2;
+                    double oddRe = re[odd] * wRe - im[odd] * wIm;
+                    double oddIm = re[odd] * wIm + im[odd] * wRe;
+                    re[odd] = re[even] - oddRe;
+                    im[odd] = im[even] - oddIm;
+                    re[even] += oddRe;
+                    im[even] += oddIm;
+                    double nextRe = wRe * stepRe - wIm * stepIm;
+                    wIm = wRe * stepIm + wIm * stepRe;
+                    wRe = nextRe;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package simulation;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * One thread slot's share of a {@link ProgressMonitor}: the seat histogram of every election the tasks in that slot
+ * have published so far. Only one task writes to a cell at a time, so publishing is a plain read and an ordered
+ * write per seat count, and any thread can read the cell while it's being written.
+ */
+public class ProgressCell {
+
+    /**
+     * How many published elections had each number of Democratic seats.
+     */
+    private final AtomicLongArray histogram;
+
+    /**
+     * Default constructor.
+     *
+     * @param numDistricts The number of districts being simulated.
+     */
+    public ProgressCell(int numDistricts) {
+        this.histogram = new AtomicLongArray(numDistricts + 1);
+    }
+
+    /**
+     * Add a task's unpublished counts to this cell, and clear them.
+     *
+     * @param pending How many unpublished elections had each number of Democratic seats. Zeroed afterwards.
+     */
+    public void publish(long[] pending) {
+        for (int seats = 0; seats < pending.length; seats++) {
+            if (pending[seats] != 0) {
+                histogram.lazySet(seats, histogram.get(seats) + pending[seats]);
+                pending[seats] = 0;
+            }
+        }
+    }
+
+    /**
+     * Add this cell's counts to a histogram.
+     *
+     * @param sum The histogram to add to.
+     */
+    public void addTo(long[] sum) {
+        for (int seats = 0; seats < sum.length; seats++) {
+            sum[seats] += histogram.get(seats);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package simulation;
+
+/**
+ * Live counts of a simulation run that any thread can read while the run continues. Each thread slot has its own
+ * {@link ProgressCell}, which the tasks in that slot publish to every few thousand elections, and a reading sums the
+ * cells on demand. A reading can be a few thousand elections behind, but never blocks the simulations.
+ */
+public class ProgressMonitor {
+
+    /**
+     * How many elections a task simulates between publishing its counts.
+     */
+    public static final int PUBLISH_INTERVAL = 4096;
+
+    /**
+     * The seat histogram the run started from, which is empty unless it resumed from a checkpoint.
+     */
+    private final long[] start;
+
+    /**
+     * The published counts of each thread slot.
+     */
+    private final ProgressCell[] cells;
+
+    /**
+     * The number of elections the run will simulate if nothing stops it early.
+     */
+    private final long targetIterations;
+
+    /**
+     * The number of seats needed for a majority.
+     */
+    private final int majority;
+
+    /**
+     * When the run started, from {@link System#nanoTime()}.
+     */
+    private final long startNanos;
+
+    /**
+     * Default constructor. Starts the clock.
+     *
+     * @param start            The seat histogram the run starts from.
+     * @param slots            How many tasks run at once, each of which gets its own cell.
+     * @param targetIterations The number of elections the run will simulate if nothing stops it early.
+     * @param majority         The number of seats needed for a majority.
+     */
+    public ProgressMonitor(long[] start, int slots, long targetIterations, int majority) {
+        this.start = start.clone();
+        this.cells = new ProgressCell[slots];
+        for (int i = 0; i < slots; i++) {
+            cells[i] = new ProgressCell(start.length - 1);
+        }
+        this.targetIterations = targetIterations;
+        this.majority = majority;
+        this.startNanos = System.nanoTime();
+    }
+
+    /**
+     * @param slot The index of a thread slot.
+     * @return The cell the task in that slot publishes to.
+     */
+    public ProgressCell getCell(int slot) {
+        return cells[slot];
+    }
+
+    /**
+     * @return How many elections published so far had each number of Democratic seats, including the ones the run
+     * started from.
+     */
+    public long[] getHistogram() {
+        long[] histogram = start.clone();
+        for (ProgressCell cell : cells) {
+            cell.addTo(histogram);
+        }
+        return histogram;
+    }
+
+    /**
+     * Summarize the run so far in one line: the elections simulated, the rate since the run started, the time left
+     * at that rate, and the majority probability with its standard error. Until the run has published any simulations
+     * of its own, just the count so far.
+     *
+     * @return The summary.
+     */
+    public String getReport() {
+        long[] histogram = getHistogram();
+        long iterations = 0;
+        long wins = 0;
+        long startIterations = 0;
+        for (int seats = 0; seats < histogram.length; seats++) {
+            iterations += histogram[seats];
+            wins += seats >= majority ? histogram[seats] : 0;
+            startIterations += start[seats];
+        }
+        //Nothing has been published since the run started, so there's no rate or probability to report yet.
+        if (iterations == startIterations) {
+            return "Progress: " + iterations + " of " + targetIterations + " simulations, waiting for the first batch";
+        }
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        double rate = (iterations - startIterations) / seconds;
+        double p = (double) wins / iterations;
+        return "Progress: " + iterations + " of " + targetIterations + " simulations, " + Math.round(rate)
+                + " per second, about " + Math.round(Math.max(targetIterations - iterations, 0) / rate)
+                + " seconds left, majority probability " + p + " (standard error "
+                + Math.sqrt(p * (1 - p) / iterations) + ")";
+    }
+}
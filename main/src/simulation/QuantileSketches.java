@@ -0,0 +1,126 @@
+package simulation;
+
+/**
+ * Fixed-memory streaming quantile estimates for a group of variables, such as every district's vote share, that can be
+ * merged across tasks. Each variable gets a histogram of equal-width bins over a range picked before the run, plus a
+ * count of values below and above the range, and quantiles are interpolated linearly within a bin. Recording a value
+ * is one multiply and one increment, and two sketches over the same ranges merge exactly, so the merged quantiles
+ * don't depend on how the values were split across tasks.
+ * <p>
+ * With the ranges set to each variable's mean plus or minus 8 standard deviations and 512 bins, the quantile error is
+ * at most 1/32 of a standard deviation, and in practice much smaller because of the interpolation. 435 districts'
+ * sketches then take under 2 MB, small enough to stay in cache.
+ */
+public class QuantileSketches {
+
+    /**
+     * How many bins each variable's range is split into.
+     */
+    private final int bins;
+
+    /**
+     * The bottom of each variable's range.
+     */
+    private final double[] lows;
+
+    /**
+     * Bins per unit for each variable's range.
+     */
+    private final double[] scales;
+
+    /**
+     * The counts for every variable, one after another: below the range, each bin, then above the range.
+     */
+    private final long[] counts;
+
+    /**
+     * How many values have been recorded for each variable.
+     */
+    private long records;
+
+    /**
+     * Default constructor.
+     *
+     * @param lows  The bottom of each variable's range.
+     * @param highs The top of each variable's range. Must be above the bottom.
+     * @param bins  How many bins to split each range into.
+     * @throws IllegalArgumentException If a range is empty or the arrays are different lengths.
+     */
+    public QuantileSketches(double[] lows, double[] highs, int bins) {
+        if (lows.length != highs.length) {
+            throw new IllegalArgumentException("Got " + lows.length + " lows and " + highs.length + " highs");
+        }
+        this.bins = bins;
+        this.lows = lows;
+        this.scales = new double[lows.length];
+        for (int j = 0; j < lows.length; j++) {
+            if (!(highs[j] > lows[j])) {
+                throw new IllegalArgumentException("Empty range " + lows[j] + " to " + highs[j] + " for variable " + j);
+            }
+            scales[j] = bins / (highs[j] - lows[j]);
+        }
+        this.counts = new long[lows.length * (bins + 2)];
+    }
+
+    /**
+     * Record one value of every variable.
+     *
+     * @param values The value of each variable.
+     */
+    public void recordAll(double[] values) {
+        int stride = bins + 2;
+        for (int j = 0; j < lows.length; j++) {
+            //Bin 0 is below the range and bin bins + 1 is above it. NaN lands below.
+            double position = (values[j] - lows[j]) * scales[j] + 1;
+            int bin = position >= 1 ? (int) Math.min(position, bins + 1) : 0;
+            counts[j * stride + bin]++;
+        }
+        records++;
+    }
+
+    /**
+     * Add the counts from another sketch over the same ranges.
+     *
+     * @param other The sketch to add.
+     */
+    public void merge(QuantileSketches other) {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        records += other.records;
+    }
+
+    /**
+     * @return How many values have been recorded for each variable.
+     */
+    public long getRecords() {
+        return records;
+    }
+
+    /**
+     * Estimate a quantile of one variable. A quantile that falls below or above the range is clamped to the range.
+     *
+     * @param variable The index of the variable.
+     * @param quantile The quantile, from 0 to 1.
+     * @return The estimated value at that quantile, or NaN if nothing has been recorded.
+     */
+    public double getQuantile(int variable, double quantile) {
+        if (records == 0) {
+            return Double.NaN;
+        }
+        int offset = variable * (bins + 2);
+        double target = quantile * records;
+        long cumulative = counts[offset];
+        if (cumulative >= target) {
+            return lows[variable];
+        }
+        for (int bin = 1; bin <= bins; bin++) {
+            long count = counts[offset + bin];
+            if (count > 0 && cumulative + count >= target) {
+                return lows[variable] + (bin - 1 + (target - cumulative) / count) / scales[variable];
+            }
+            cumulative += count;
+        }
+        return lows[variable] + bins / scales[variable];
+    }
+}
@@ -0,0 +1,84 @@
+package simulation;
+
+/**
+ * A named set of races decided together, like the House or the Senate, with its own majority rule. The seats that
+ * aren't up for election count toward the majority through the baseline.
+ */
+public class RaceGroup {
+
+    /**
+     * The name of the group, like house or senate.
+     */
+    private final String name;
+
+    /**
+     * The races up for election in the group.
+     */
+    private final CompiledDistricts races;
+
+    /**
+     * The number of seats Democrats need in total to control the group.
+     */
+    private final int majority;
+
+    /**
+     * The number of seats Democrats already hold that aren't up for election.
+     */
+    private final int baseline;
+
+    /**
+     * Default constructor.
+     *
+     * @param name     The name of the group, like house or senate.
+     * @param races    The races up for election in the group, compiled with the group's own national shift standard
+     *                 deviation.
+     * @param majority The number of seats Democrats need in total to control the group, counting the baseline. A
+     *                 tie-breaking vote is part of the rule, e.g. 50 for a Senate the Democrats break ties in.
+     * @param baseline The number of seats Democrats already hold that aren't up for election. Must not be negative.
+     * @throws IllegalArgumentException If the baseline is negative.
+     */
+    public RaceGroup(String name, CompiledDistricts races, int majority, int baseline) {
+        if (baseline < 0) {
+            throw new IllegalArgumentException("Group " + name + " has a negative baseline, " + baseline);
+        }
+        this.name = name;
+        this.races = races;
+        this.majority = majority;
+        this.baseline = baseline;
+    }
+
+    /**
+     * @return The name of the group.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return The races up for election in the group.
+     */
+    public CompiledDistricts getRaces() {
+        return races;
+    }
+
+    /**
+     * @return The number of seats Democrats need in total to control the group.
+     */
+    public int getMajority() {
+        return majority;
+    }
+
+    /**
+     * @return The number of seats Democrats already hold that aren't up for election.
+     */
+    public int getBaseline() {
+        return baseline;
+    }
+
+    /**
+     * @return How many of the races up for election Democrats need to win to control the group, at least 0.
+     */
+    public int getSeatsNeeded() {
+        return Math.max(majority - baseline, 0);
+    }
+}
@@ -0,0 +1,87 @@
+package simulation;
+
+import java.util.Arrays;
+
+/**
+ * Buffers one task's rows of a {@link RawDrawStore} column by column, and copies each full block into the store as
+ * one sequential run per column. Used only by that task.
+ */
+public class RawDrawBuffer {
+
+    /**
+     * How many rows are buffered before they're copied into the store.
+     */
+    private static final int BLOCK = 4096;
+
+    /**
+     * The store to copy into.
+     */
+    private final RawDrawStore store;
+
+    /**
+     * The original index of each random district, in compiled order.
+     */
+    private final int[] activeIndices;
+
+    /**
+     * The buffered rows, one block per column. Fixed districts' blocks are filled with their vote share once.
+     */
+    private final float[][] blocks;
+
+    /**
+     * The row the buffered block starts at.
+     */
+    private int blockStart;
+
+    /**
+     * How many rows are buffered.
+     */
+    private int size;
+
+    /**
+     * Default constructor.
+     *
+     * @param store     The store to copy into.
+     * @param districts The districts being simulated.
+     * @param firstRow  The row the task starts at.
+     */
+    RawDrawBuffer(RawDrawStore store, CompiledDistricts districts, int firstRow) {
+        this.store = store;
+        this.activeIndices = districts.getActiveIndices();
+        this.blocks = new float[districts.getNumDistricts() + 1][BLOCK];
+        for (int i = 0; i < districts.getNumDistricts(); i++) {
+            if (districts.isFixed(i)) {
+                Arrays.fill(blocks[i + 1], (float) districts.getDistricts()[i].getAuspiceDemPercent());
+            }
+        }
+        this.blockStart = firstRow;
+    }
+
+    /**
+     * Record the next row.
+     *
+     * @param noise  The national noise.
+     * @param shares The Democratic share of the two-party vote in each random district, in compiled order.
+     */
+    public void recordIteration(double noise, double[] shares) {
+        blocks[0][size] = (float) noise;
+        for (int j = 0; j < activeIndices.length; j++) {
+            blocks[activeIndices[j] + 1][size] = (float) shares[j];
+        }
+        size++;
+        if (size == BLOCK) {
+            flush();
+        }
+    }
+
+    /**
+     * Copy the buffered rows into the store. Must be called once the task has recorded its last row.
+     */
+    public void flush() {
+        for (int c = 0; c < blocks.length; c++) {
+            store.write(c, blockStart, blocks[c], size);
+        }
+        blockStart += size;
+        size = 0;
+    }
+}
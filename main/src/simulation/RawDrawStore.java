@@ -0,0 +1,163 @@
+package simulation;
+
+import dataholder.District;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A file holding the raw draws of a vote share run as float32 columns: the national noise first, then each district's
+ * Democratic share of the two-party vote, in the original district order. Each column is one contiguous run of
+ * floats, so a notebook can map or read just the columns it wants.
+ * <p>
+ * The file is little-endian. The header is the magic number, the format version, and the number of columns as ints,
+ * then the capacity of each column and the number of rows actually written as longs, then each column name as a
+ * short byte length followed by its UTF-8 bytes, padded with zeros to a multiple of {@link #ALIGNMENT} bytes. Column c
+ * starts at the end of the header plus c * capacity * 4 bytes, and only its first rows floats are filled.
+ * <p>
+ * Each column is mapped once, and each simulation task buffers its rows with a {@link RawDrawBuffer} and copies them
+ * into its own rows of every column in large blocks, so tasks write in parallel without sharing anything.
+ */
+public class RawDrawStore {
+
+    /**
+     * The magic number at the start of every raw draw file, "RAWD" in ASCII.
+     */
+    public static final int MAGIC = 0x52415744;
+
+    /**
+     * The version of the file format.
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * What the header is padded to a multiple of, so the columns start on page boundaries.
+     */
+    public static final int ALIGNMENT = 4096;
+
+    /**
+     * Where the number of rows is in the header.
+     */
+    private static final int ROWS_OFFSET = 20;
+
+    /**
+     * The open file.
+     */
+    private final FileChannel channel;
+
+    /**
+     * Each column's mapping, kept to flush it to disk on close.
+     */
+    private final MappedByteBuffer[] mappings;
+
+    /**
+     * Each column, as floats.
+     */
+    private final FloatBuffer[] columns;
+
+    /**
+     * The most rows each column has room for.
+     */
+    private final long capacity;
+
+    /**
+     * Default constructor. Creates or overwrites the file, writes the header, and maps every column.
+     *
+     * @param file      The file to write.
+     * @param districts The districts being simulated, in the original order.
+     * @param capacity  The most rows that will be written.
+     * @throws IOException              If the file can't be created, written, or mapped.
+     * @throws IllegalArgumentException If a column with that many rows wouldn't fit in one mapping.
+     */
+    public RawDrawStore(Path file, District[] districts, long capacity) throws IOException {
+        if (capacity * Float.BYTES > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Raw draw columns hold at most " + Integer.MAX_VALUE / Float.BYTES
+                    + " rows, got " + capacity);
+        }
+        this.capacity = capacity;
+
+        byte[][] names = new byte[districts.length + 1][];
+        names[0] = "noise".getBytes(StandardCharsets.UTF_8);
+        int length = ROWS_OFFSET + Long.BYTES + Short.BYTES + names[0].length;
+        for (int i = 0; i < districts.length; i++) {
+            names[i + 1] = districts[i].getName().getBytes(StandardCharsets.UTF_8);
+            length += Short.BYTES + names[i + 1].length;
+        }
+        int headerBytes = (length + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+
+        ByteBuffer header = ByteBuffer.allocate(headerBytes).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putInt(VERSION).putInt(names.length).putLong(capacity).putLong(0);
+        for (byte[] name : names) {
+            header.putShort((short) name.length).put(name);
+        }
+        header.clear();
+
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        while (header.hasRemaining()) {
+            channel.write(header, header.position());
+        }
+        this.mappings = new MappedByteBuffer[names.length];
+        this.columns = new FloatBuffer[names.length];
+        for (int c = 0; c < columns.length; c++) {
+            mappings[c] = channel.map(FileChannel.MapMode.READ_WRITE, headerBytes + c * capacity * Float.BYTES,
+                    capacity * Float.BYTES);
+            columns[c] = mappings[c].order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+        }
+    }
+
+    /**
+     * Make a buffer for a run of consecutive rows, for one task to write.
+     *
+     * @param districts The districts being simulated, compiled from the districts the store was made with.
+     * @param firstRow  The index of the first row, counting from 0.
+     * @param rows      How many rows the task writes.
+     * @return A buffer that writes those rows, in order.
+     * @throws IllegalArgumentException If the rows go past the capacity of the store.
+     */
+    public RawDrawBuffer openBuffer(CompiledDistricts districts, long firstRow, int rows) {
+        if (firstRow < 0 || firstRow + rows > capacity) {
+            throw new IllegalArgumentException("Rows " + firstRow + " to " + (firstRow + rows)
+                    + " don't fit in a raw draw store with room for " + capacity);
+        }
+        return new RawDrawBuffer(this, districts, (int) firstRow);
+    }
+
+    /**
+     * Copy a block of rows into one column. Tasks only ever copy into their own rows, so this needs no locking.
+     *
+     * @param column   The column to copy into.
+     * @param firstRow The row to start at.
+     * @param values   The values to copy.
+     * @param count    How many values to copy.
+     */
+    void write(int column, int firstRow, float[] values, int count) {
+        columns[column].put(firstRow, values, 0, count);
+    }
+
+    /**
+     * Flush the columns to disk, then write how many rows were filled into the header and close the file, so the
+     * header never counts rows that aren't on disk. Every buffer must be flushed first.
+     *
+     * @param rows How many rows were filled, all at the start of each column.
+     * @throws IOException If the file can't be written.
+     */
+    public void close(long rows) throws IOException {
+        //Forcing the channel isn't guaranteed to flush changes made through a mapping, so force each one.
+        for (MappedByteBuffer mapping : mappings) {
+            mapping.force();
+        }
+        ByteBuffer count = ByteBuffer.allocate(Long.BYTES).order(ByteOrder.LITTLE_ENDIAN).putLong(rows);
+        count.flip();
+        channel.write(count, ROWS_OFFSET);
+        channel.force(false);
+        channel.close();
+    }
+}
@@ -0,0 +1,58 @@
+package simulation;
+
+import util.Normal;
+
+/**
+ * Decides each district one at a time, with either the exact normal CDF or the table-interpolated one.
+ */
+public class ScalarKernel implements WinChanceKernel {
+
+    /**
+     * (mean - 0.5) / residual standard deviation for each random district.
+     */
+    private final double[] offsets;
+
+    /**
+     * elasticity / residual standard deviation for each random district.
+     */
+    private final double[] slopes;
+
+    /**
+     * Whether to use {@link Normal#fastStandardNormalCDF(double)} instead of the exact CDF.
+     */
+    private final boolean fast;
+
+    /**
+     * Default constructor.
+     *
+     * @param districts The districts to simulate.
+     * @param fast      Whether to use the table-interpolated CDF, which is within {@link Normal#FAST_MAX_ERROR} of the
+     *                  exact one.
+     */
+    public ScalarKernel(CompiledDistricts districts, boolean fast) {
+        this.offsets = districts.getOffsets();
+        this.slopes = districts.getSlopes();
+        this.fast = fast;
+    }
+
+    @Override
+    public int simulate(double noise, double[] uniforms, int[] outcomes) {
+        int seats = 0;
+        //Check the mode once here rather than once per district.
+        if (fast) {
+            for (int j = 0; j < offsets.length; j++) {
+                int win = uniforms[j] < Normal.fastStandardNormalCDF(offsets[j] + slopes[j] * noise) ? 1 : 0;
+                outcomes[j] = win;
+                seats += win;
+            }
+        } else {
+            for (int j = 0; j < offsets.length; j++) {
+                //Since the vote percent is normally distributed, we can just calculate the chance that Democrats win.
+                int win = uniforms[j] < Normal.standardNormalCDF(offsets[j] + slopes[j] * noise) ? 1 : 0;
+                outcomes[j] = win;
+                seats += win;
+            }
+        }
+        return seats;
+    }
+}
@@ -0,0 +1,133 @@
+package simulation;
+
+import dataholder.District;
+
+/**
+ * One variant of the forecast to simulate alongside others, e.g. with a different national shift standard deviation, a
+ * shifted generic ballot average, or alternate AUSPICE outputs. The AUSPICE means and standard deviations and the
+ * bigmood vote shares are copied when the scenario is made, so the districts can be recalculated for the next scenario
+ * afterwards.
+ */
+public class Scenario {
+
+    /**
+     * The name of the scenario, used in the output file names.
+     */
+    private final String name;
+
+    /**
+     * The districts, which supply the names and elasticities.
+     */
+    private final District[] districts;
+
+    /**
+     * The AUSPICE Democratic vote share of each district in this scenario.
+     */
+    private final double[] auspiceMeans;
+
+    /**
+     * The AUSPICE standard deviation of each district in this scenario.
+     */
+    private final double[] auspiceStDvs;
+
+    /**
+     * The bigmood Democratic vote share of each district in this scenario.
+     */
+    private final double[] bigmoodMeans;
+
+    /**
+     * The standard deviation of the national shift in this scenario.
+     */
+    private final double nationalShiftStDv;
+
+    /**
+     * Copy the districts' current bigmood and AUSPICE outputs into a scenario.
+     *
+     * @param name              The name of the scenario, used in the output file names.
+     * @param districts         The districts, with bigmood and AUSPICE already calculated for this scenario.
+     * @param nationalShiftStDv The standard deviation of the national shift in this scenario.
+     */
+    public Scenario(String name, District[] districts, double nationalShiftStDv) {
+        this.name = name;
+        this.districts = districts;
+        this.nationalShiftStDv = nationalShiftStDv;
+        this.auspiceMeans = new double[districts.length];
+        this.auspiceStDvs = new double[districts.length];
+        this.bigmoodMeans = new double[districts.length];
+        for (int i = 0; i < districts.length; i++) {
+            auspiceMeans[i] = districts[i].getAuspiceDemPercent();
+            auspiceStDvs[i] = districts[i].getAuspiceStDv();
+            bigmoodMeans[i] = districts[i].getBigmoodDemPercent();
+        }
+    }
+
+    /**
+     * Make a scenario with the same bigmood and AUSPICE outputs and a different national shift standard deviation.
+     *
+     * @param name              The name of the new scenario.
+     * @param nationalShiftStDv The standard deviation of the national shift in the new scenario.
+     * @return The new scenario.
+     */
+    public Scenario withNationalShiftStDv(String name, double nationalShiftStDv) {
+        Scenario scenario = new Scenario(name, districts, nationalShiftStDv);
+        System.arraycopy(auspiceMeans, 0, scenario.auspiceMeans, 0, auspiceMeans.length);
+        System.arraycopy(auspiceStDvs, 0, scenario.auspiceStDvs, 0, auspiceStDvs.length);
+        System.arraycopy(bigmoodMeans, 0, scenario.bigmoodMeans, 0, bigmoodMeans.length);
+        return scenario;
+    }
+
+    /**
+     * Compile the scenario for simulation.
+     *
+     * @param pruneLimit     How many standard deviations of national noise the run can plausibly sample.
+     * @param pruneTolerance How close to 0 or 1 a district's win chance has to stay to be pruned. 0 to not prune.
+     * @return The compiled districts.
+     * @throws IllegalArgumentException If any district's residual variance is NaN or not positive.
+     */
+    public CompiledDistricts compile(double pruneLimit, double pruneTolerance) {
+        return new CompiledDistricts(districts, auspiceMeans, auspiceStDvs, nationalShiftStDv, pruneLimit,
+                pruneTolerance);
+    }
+
+    /**
+     * @return The name of the scenario, used in the output file names.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return The districts, which supply the names and elasticities.
+     */
+    public District[] getDistricts() {
+        return districts;
+    }
+
+    /**
+     * @return The AUSPICE Democratic vote share of each district in this scenario.
+     */
+    public double[] getAuspiceMeans() {
+        return auspiceMeans;
+    }
+
+    /**
+     * @return The AUSPICE standard deviation of each district in this scenario.
+     */
+    public double[] getAuspiceStDvs() {
+        return auspiceStDvs;
+    }
+
+    /**
+     * @return The bigmood Democratic vote share of each district in this scenario.
+     */
+    public double[] getBigmoodMeans() {
+        return bigmoodMeans;
+    }
+
+    /**
+     * @return The standard deviation of the national shift in this scenario.
+     */
+    public double getNationalShiftStDv() {
+        return nationalShiftStDv;
+    }
+}
@@ -0,0 +1,184 @@
+package simulation;
+
+/**
+ * The counts from simulating several scenarios against the same draws: one {@link SimulationResult} per scenario, plus
+ * the sums of each scenario's per-iteration differences from the first scenario, the baseline. Each simulation task
+ * keeps its own result, and the results are merged once every task has finished.
+ */
+public class ScenarioResult {
+
+    /**
+     * The counts for each scenario.
+     */
+    private final SimulationResult[] results;
+
+    /**
+     * The number of seats needed for a majority.
+     */
+    private final int majority;
+
+    /**
+     * The sum over iterations of each scenario's seats minus the baseline's seats.
+     */
+    private final long[] seatDifferenceSum;
+
+    /**
+     * The sum over iterations of the square of each scenario's seats minus the baseline's seats.
+     */
+    private final long[] seatDifferenceSquareSum;
+
+    /**
+     * The sum over iterations of whether each scenario had a majority minus whether the baseline did.
+     */
+    private final long[] majorityDifferenceSum;
+
+    /**
+     * How many iterations each scenario and the baseline disagreed on the majority in. Each difference is -1, 0, or 1,
+     * so this is also the sum of the squared differences.
+     */
+    private final long[] majorityDisagreements;
+
+    /**
+     * Default constructor.
+     *
+     * @param numScenarios The number of scenarios, including the baseline.
+     * @param numDistricts The number of districts being simulated.
+     * @param majority     The number of seats needed for a majority.
+     */
+    public ScenarioResult(int numScenarios, int numDistricts, int majority) {
+        this.results = new SimulationResult[numScenarios];
+        for (int k = 0; k < numScenarios; k++) {
+            results[k] = new SimulationResult(numDistricts);
+        }
+        this.majority = majority;
+        this.seatDifferenceSum = new long[numScenarios];
+        this.seatDifferenceSquareSum = new long[numScenarios];
+        this.majorityDifferenceSum = new long[numScenarios];
+        this.majorityDisagreements = new long[numScenarios];
+    }
+
+    /**
+     * Record the end of a simulated election in every scenario.
+     *
+     * @param seats How many seats the Democrats won in that election in each scenario.
+     */
+    public void recordIteration(int[] seats) {
+        int baselineMajority = seats[0] >= majority ? 1 : 0;
+        for (int k = 0; k < results.length; k++) {
+            results[k].recordIteration(seats[k]);
+            long seatDifference = seats[k] - seats[0];
+            seatDifferenceSum[k] += seatDifference;
+            seatDifferenceSquareSum[k] += seatDifference * seatDifference;
+            int majorityDifference = (seats[k] >= majority ? 1 : 0) - baselineMajority;
+            majorityDifferenceSum[k] += majorityDifference;
+            majorityDisagreements[k] += Math.abs(majorityDifference);
+        }
+    }
+
+    /**
+     * Add the counts from another result with the same scenarios.
+     *
+     * @param other The result to add.
+     */
+    public void merge(ScenarioResult other) {
+        for (int k = 0; k < results.length; k++) {
+            results[k].merge(other.results[k]);
+            seatDifferenceSum[k] += other.seatDifferenceSum[k];
+            seatDifferenceSquareSum[k] += other.seatDifferenceSquareSum[k];
+            majorityDifferenceSum[k] += other.majorityDifferenceSum[k];
+            majorityDisagreements[k] += other.majorityDisagreements[k];
+        }
+    }
+
+    /**
+     * @param scenario The index of the scenario.
+     * @return The counts for that scenario.
+     */
+    public SimulationResult getResult(int scenario) {
+        return results[scenario];
+    }
+
+    /**
+     * @return The number of scenarios, including the baseline.
+     */
+    public int getNumScenarios() {
+        return results.length;
+    }
+
+    /**
+     * @return How many elections have been simulated in each scenario.
+     */
+    public long getIterations() {
+        return results[0].getIterations();
+    }
+
+    /**
+     * @param scenario The index of the scenario.
+     * @return The scenario's average seats minus the baseline's.
+     */
+    public double getSeatDifference(int scenario) {
+        return (double) seatDifferenceSum[scenario] / getIterations();
+    }
+
+    /**
+     * @param scenario The index of the scenario.
+     * @return The standard error of {@link #getSeatDifference}, treating the iterations as independent.
+     */
+    public double getSeatDifferenceStdError(int scenario) {
+        return stdError(seatDifferenceSum[scenario], seatDifferenceSquareSum[scenario]);
+    }
+
+    /**
+     * @param scenario The index of the scenario.
+     * @return The scenario's majority probability minus the baseline's.
+     */
+    public double getMajorityDifference(int scenario) {
+        return (double) majorityDifferenceSum[scenario] / getIterations();
+    }
+
+    /**
+     * @param scenario The index of the scenario.
+     * @return The standard error of {@link #getMajorityDifference}, treating the iterations as independent.
+     */
+    public double getMajorityDifferenceStdError(int scenario) {
+        return stdError(majorityDifferenceSum[scenario], majorityDisagreements[scenario]);
+    }
+
+    /**
+     * The variance of the paired seat difference relative to the variance of the difference between two independent
+     * runs of the same length. Smaller means the shared draws bought more.
+     *
+     * @param scenario The index of the scenario. Not the baseline.
+     * @return The variance ratio.
+     */
+    public double getSeatDifferenceVarianceRatio(int scenario) {
+        double paired = getSeatDifferenceStdError(scenario);
+        double scenarioStdError = results[scenario].getSeatsStdError();
+        double baselineStdError = results[0].getSeatsStdError();
+        return paired * paired / (scenarioStdError * scenarioStdError + baselineStdError * baselineStdError);
+    }
+
+    /**
+     * The same as {@link #getSeatDifferenceVarianceRatio}, for the majority probability.
+     *
+     * @param scenario The index of the scenario. Not the baseline.
+     * @return The variance ratio.
+     */
+    public double getMajorityDifferenceVarianceRatio(int scenario) {
+        double paired = getMajorityDifferenceStdError(scenario);
+        double scenarioStdError = results[scenario].getMajorityStdError(majority);
+        double baselineStdError = results[0].getMajorityStdError(majority);
+        return paired * paired / (scenarioStdError * scenarioStdError + baselineStdError * baselineStdError);
+    }
+
+    /**
+     * @param sum       The sum of the per-iteration values.
+     * @param squareSum The sum of the squares of the per-iteration values.
+     * @return The standard error of the mean of the values.
+     */
+    private double stdError(long sum, long squareSum) {
+        double iterations = getIterations();
+        double mean = sum / iterations;
+        return Math.sqrt(Math.max(squareSum / iterations - mean * mean, 0) / iterations);
+    }
+}
@@ -0,0 +1,139 @@
+package simulation;
+
+import rng.RandomStream;
+
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Simulates a fixed number of elections in every scenario, with the same national noise and the same uniform draw for
+ * each district in every scenario, using its own random stream and its own counts.
+ */
+public class ScenarioTask extends RecursiveTask<ScenarioResult> {
+
+    /**
+     * Serialization version. Tasks are never serialized, but RecursiveTask is Serializable.
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The compiled districts of each scenario.
+     */
+    private final CompiledDistricts[] scenarios;
+
+    /**
+     * The noise sampling strategy and majority to use.
+     */
+    private final SimulationSettings settings;
+
+    /**
+     * The kernel for each scenario, used only by this task.
+     */
+    private final WinChanceKernel[] kernels;
+
+    /**
+     * The number of elections this task simulates.
+     */
+    private final int iterations;
+
+    /**
+     * The random stream used only by this task.
+     */
+    private final RandomStream random;
+
+    /**
+     * Default constructor.
+     *
+     * @param scenarios  The compiled districts of each scenario, baseline first. Every scenario must have the same
+     *                   districts in the same order.
+     * @param settings   The noise sampling strategy and majority to use.
+     * @param kernels    The kernel for each scenario. Must not be shared with any other task.
+     * @param iterations The number of elections this task simulates.
+     * @param random     The random stream used only by this task. Must not be shared with any other task.
+     */
+    public ScenarioTask(CompiledDistricts[] scenarios, SimulationSettings settings, WinChanceKernel[] kernels,
+                        int iterations, RandomStream random) {
+        this.scenarios = scenarios;
+        this.settings = settings;
+        this.kernels = kernels;
+        this.iterations = iterations;
+        this.random = random;
+    }
+
+    /**
+     * Run this task's share of the simulations.
+     *
+     * @return The counts from this task's simulations, recorded as one replicate.
+     */
+    @Override
+    protected ScenarioResult compute() {
+        NoiseSampler noiseSampler = settings.createNoiseSampler(random, iterations);
+        int numScenarios = scenarios.length;
+        int numDistricts = scenarios[0].getNumDistricts();
+
+        //Every district gets a uniform, so a district uses the same draw in every scenario whether or not it's pruned.
+        double[] uniforms = new double[numDistricts];
+        double[][] scenarioUniforms = new double[numScenarios][];
+        int[][] outcomes = new int[numScenarios][];
+        long[][] activeWins = new long[numScenarios][];
+        for (int k = 0; k < numScenarios; k++) {
+            scenarioUniforms[k] = new double[scenarios[k].getNumActive()];
+            outcomes[k] = new int[scenarios[k].getNumActive()];
+            activeWins[k] = new long[scenarios[k].getNumActive()];
+        }
+        int[] seats = new int[numScenarios];
+        //Every scenario has the same districts, so the same states and regions, and can share the same shocks.
+        double[] shocks = new double[kernels[0].getNumShocks()];
+
+        ScenarioResult result = new ScenarioResult(numScenarios, numDistricts, settings.getMajority());
+        for (int i = 0; i < iterations; i++) {
+            double z = noiseSampler.next();
+            if (shocks.length > 0) {
+                random.fillGaussians(shocks);
+                for (WinChanceKernel kernel : kernels) {
+                    kernel.setShocks(shocks);
+                }
+            }
+            random.fillUniforms(uniforms);
+
+            for (int k = 0; k < numScenarios; k++) {
+                CompiledDistricts scenario = scenarios[k];
+                int[] activeIndices = scenario.getActiveIndices();
+                for (int j = 0; j < activeIndices.length; j++) {
+                    scenarioUniforms[k][j] = uniforms[activeIndices[j]];
+                }
+                seats[k] = scenario.getFixedSeats() + kernels[k].simulate(scenario.getNationalShiftStDv() * z,
+                        scenarioUniforms[k], outcomes[k]);
+                for (int j = 0; j < activeIndices.length; j++) {
+                    activeWins[k][j] += outcomes[k][j];
+                }
+            }
+            result.recordIteration(seats);
+        }
+
+        for (int k = 0; k < numScenarios; k++) {
+            addDistrictWins(scenarios[k], result.getResult(k), activeWins[k]);
+            result.getResult(k).recordReplicate(settings.getMajority());
+        }
+        return result;
+    }
+
+    /**
+     * Move one scenario's per-district win counts from the compiled order back into the original district order.
+     *
+     * @param scenario   The compiled districts of the scenario.
+     * @param result     The scenario's result to add the wins to. Must already have all of this task's iterations
+     *                   recorded.
+     * @param activeWins How many times Democrats won each random district, in compiled order.
+     */
+    private void addDistrictWins(CompiledDistricts scenario, SimulationResult result, long[] activeWins) {
+        int[] activeIndices = scenario.getActiveIndices();
+        for (int j = 0; j < activeWins.length; j++) {
+            result.recordWins(activeIndices[j], activeWins[j]);
+        }
+        for (int i = 0; i < scenario.getNumDistricts(); i++) {
+            if (scenario.isFixed(i) && scenario.isFixedWin(i)) {
+                result.recordWins(i, iterations);
+            }
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package simulation;
+
+/**
+ * The final, normalized outputs of a forecast: the probability of each Democratic seat count and the chance Democrats
+ * win each district. Both the Monte Carlo simulations and the analytic engine produce one of these.
+ */
+public class SeatDistribution {
+
+    /**
+     * The probability that Democrats win each number of seats, indexed by seat count.
+     */
+    private final double[] seatProbabilities;
+
+    /**
+     * The chance Democrats win each district, in the same order as the districts.
+     */
+    private final double[] districtWinChances;
+
+    /**
+     * Default constructor.
+     *
+     * @param seatProbabilities  The probability that Democrats win each number of seats, indexed by seat count.
+     * @param districtWinChances The chance Democrats win each district, in the same order as the districts.
+     */
+    public SeatDistribution(double[] seatProbabilities, double[] districtWinChances) {
+        this.seatProbabilities = seatProbabilities;
+        this.districtWinChances = districtWinChances;
+    }
+
+    /**
+     * @return The probability that Democrats win each number of seats, indexed by seat count.
+     */
+    public double[] getSeatProbabilities() {
+        return seatProbabilities;
+    }
+
+    /**
+     * @return The chance Democrats win each district, in the same order as the districts.
+     */
+    public double[] getDistrictWinChances() {
+        return districtWinChances;
+    }
+
+    /**
+     * @param majority The number of seats needed for a majority.
+     * @return The probability that Democrats win at least that many seats.
+     */
+    public double getMajorityProbability(int majority) {
+        double probability = 0;
+        for (int i = majority; i < seatProbabilities.length; i++) {
+            probability += seatProbabilities[i];
+        }
+        return probability;
+    }
+
+    /**
+     * @return How many seats the Democrats win, on average.
+     */
+    public double getAverageSeats() {
+        double seats = 0;
+        for (int i = 0; i < seatProbabilities.length; i++) {
+            seats += i * seatProbabilities[i];
+        }
+        return seats;
+    }
+}
@@ -0,0 +1,230 @@
+package simulation;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * The raw counts from one slice of a run split across several processes, which can be merged with the other slices
+ * into the counts of the whole run. Every count is a long, so merged runs can go past 2^31 simulations.
+ * <p>
+ * The file holds the magic number and version as ints, the settings fingerprint as a UTF string, the iteration limit
+ * of the whole run as a long, the shard index and count as ints, the number of simulations the slice should have run
+ * as a long, then the counts as {@link SimulationResult#writeTo} writes them. Like a {@link Checkpoint}, it's written
+ * to a temporary file first and then renamed.
+ */
+public class Shard {
+
+    /**
+     * The magic number at the start of every shard file, "SHRD" in ASCII.
+     */
+    private static final int MAGIC = 0x53485244;
+
+    /**
+     * The version of the file format.
+     */
+    private static final int VERSION = 2;
+
+    /**
+     * Everything about the run that has to match for shards to merge, from {@link Checkpoint#getFingerprint}.
+     */
+    private final String fingerprint;
+
+    /**
+     * The iteration limit of the whole run, which every shard has to share.
+     */
+    private final long iterations;
+
+    /**
+     * Which slice of the run this is.
+     */
+    private final int shardIndex;
+
+    /**
+     * How many slices the run was split into.
+     */
+    private final int shardCount;
+
+    /**
+     * How many simulations this slice runs if nothing stops it early.
+     */
+    private final long expectedIterations;
+
+    /**
+     * The counts from this slice.
+     */
+    private final SimulationResult result;
+
+    /**
+     * Default constructor.
+     *
+     * @param fingerprint        Everything about the run that has to match for shards to merge.
+     * @param iterations         The iteration limit of the whole run.
+     * @param shardIndex         Which slice of the run this is.
+     * @param shardCount         How many slices the run was split into.
+     * @param expectedIterations How many simulations this slice runs if nothing stops it early, from
+     *                           {@link ParallelSimulator#getShardIterations}.
+     * @param result             The counts from this slice.
+     */
+    public Shard(String fingerprint, long iterations, int shardIndex, int shardCount, long expectedIterations,
+                 SimulationResult result) {
+        this.fingerprint = fingerprint;
+        this.iterations = iterations;
+        this.shardIndex = shardIndex;
+        this.shardCount = shardCount;
+        this.expectedIterations = expectedIterations;
+        this.result = result;
+    }
+
+    /**
+     * Write this shard atomically, replacing any older file.
+     *
+     * @param file The shard file.
+     * @throws IOException If the writing or renaming fails.
+     */
+    public void save(Path file) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileOutputStream stream = new FileOutputStream(temp.toFile())) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeUTF(fingerprint);
+            out.writeLong(iterations);
+            out.writeInt(shardIndex);
+            out.writeInt(shardCount);
+            out.writeLong(expectedIterations);
+            result.writeTo(out);
+            out.flush();
+            stream.getFD().sync();
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Read a shard written by {@link #save}.
+     *
+     * @param file The shard file.
+     * @return The shard.
+     * @throws IOException              If the reading fails.
+     * @throws IllegalArgumentException If the file isn't a shard this version can read.
+     */
+    public static Shard load(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IllegalArgumentException(file + " isn't a shard file");
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IllegalArgumentException(file + " has shard version " + version + ", expected " + VERSION);
+            }
+            String fingerprint = in.readUTF();
+            long iterations = in.readLong();
+            int shardIndex = in.readInt();
+            int shardCount = in.readInt();
+            long expectedIterations = in.readLong();
+            if (shardCount < 1 || shardIndex < 0 || shardIndex >= shardCount) {
+                throw new IllegalArgumentException(file + " claims to be shard " + shardIndex + " of " + shardCount
+                        + ", so it's corrupt");
+            }
+            return new Shard(fingerprint, iterations, shardIndex, shardCount, expectedIterations,
+                    SimulationResult.readFrom(in));
+        }
+    }
+
+    /**
+     * Merge every shard of a run.
+     *
+     * @param shards The shards to merge. Must all be from the same run, with every slice exactly once.
+     * @return The merged counts.
+     * @throws IllegalArgumentException If there are no shards, they're from different runs or have different iteration
+     *                                  limits, a slice stopped early, a slice index is out of range or repeated, or a
+     *                                  slice is missing.
+     */
+    public static SimulationResult merge(Shard[] shards) {
+        if (shards.length == 0) {
+            throw new IllegalArgumentException("Need at least one shard to merge");
+        }
+        boolean[] seen = new boolean[shards[0].shardCount];
+        SimulationResult result = new SimulationResult(shards[0].result.getDistrictWins().length);
+        for (Shard shard : shards) {
+            if (!shard.fingerprint.equals(shards[0].fingerprint) || shard.shardCount != shards[0].shardCount) {
+                throw new IllegalArgumentException("Shard " + shard.shardIndex + " of " + shard.shardCount + " ("
+                        + shard.fingerprint + ") is from a different run than shard " + shards[0].shardIndex + " of "
+                        + shards[0].shardCount + " (" + shards[0].fingerprint + ")");
+            }
+            if (shard.iterations != shards[0].iterations) {
+                throw new IllegalArgumentException("Shard " + shard.shardIndex + " ran up to " + shard.iterations
+                        + " simulations, but shard " + shards[0].shardIndex + " ran up to " + shards[0].iterations);
+            }
+            //A slice cut short by a time budget or standard error target would skew the totals toward the others.
+            if (shard.result.getIterations() != shard.expectedIterations) {
+                throw new IllegalArgumentException("Shard " + shard.shardIndex + " stopped early, after "
+                        + shard.result.getIterations() + " of " + shard.expectedIterations + " simulations");
+            }
+            if (shard.shardIndex < 0 || shard.shardIndex >= seen.length) {
+                throw new IllegalArgumentException("Shard " + shard.shardIndex + " is out of range for a run split "
+                        + "into " + seen.length + " shards");
+            }
+            if (seen[shard.shardIndex]) {
+                throw new IllegalArgumentException("Shard " + shard.shardIndex + " is there twice");
+            }
+            seen[shard.shardIndex] = true;
+            result.merge(shard.result);
+        }
+        //A missing slice would quietly undercount every total.
+        for (int i = 0; i < seen.length; i++) {
+            if (!seen[i]) {
+                throw new IllegalArgumentException("Shard " + i + " of " + seen.length + " is missing");
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return Everything about the run that has to match for shards to merge.
+     */
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * @return The iteration limit of the whole run.
+     */
+    public long getIterations() {
+        return iterations;
+    }
+
+    /**
+     * @return Which slice of the run this is.
+     */
+    public int getShardIndex() {
+        return shardIndex;
+    }
+
+    /**
+     * @return How many slices the run was split into.
+     */
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    /**
+     * @return How many simulations this slice runs if nothing stops it early.
+     */
+    public long getExpectedIterations() {
+        return expectedIterations;
+    }
+
+    /**
+     * @return The counts from this slice.
+     */
+    public SimulationResult getResult() {
+        return result;
+    }
+}
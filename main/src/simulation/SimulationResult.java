@@ -0,0 +1,333 @@
+package simulation;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * The raw counts from a batch of simulated elections. Each simulation task keeps its own result, and the results are
+ * merged once every task has finished.
+ */
+public class SimulationResult {
+
+    /**
+     * How many times the Democrats won each number of seats, indexed by seat count.
+     */
+    private final long[] histogram;
+
+    /**
+     * How many times the Democrats won each district, in the same order as the districts that were simulated.
+     */
+    private final long[] districtWins;
+
+    /**
+     * How many elections have been simulated.
+     */
+    private long iterations;
+
+    /**
+     * The total number of seats the Democrats won, summed over every simulated election.
+     */
+    private long seatSum;
+
+    /**
+     * The sum of the squares of the number of seats the Democrats won in every simulated election.
+     */
+    private long seatSquareSum;
+
+    /**
+     * How many independent replicates (simulation tasks) these counts came from.
+     */
+    private long replicates;
+
+    /**
+     * The sum over replicates of (replicate iterations * replicate majority probability^2).
+     */
+    private double replicateMajoritySquareSum;
+
+    /**
+     * The sum over replicates of (replicate iterations * replicate average seats^2).
+     */
+    private double replicateSeatsSquareSum;
+
+    /**
+     * Default constructor.
+     *
+     * @param numDistricts The number of districts being simulated.
+     */
+    public SimulationResult(int numDistricts) {
+        this.histogram = new long[numDistricts + 1];
+        this.districtWins = new long[numDistricts];
+    }
+
+    /**
+     * Record how many times the Democrats won a district.
+     *
+     * @param district The index of the district.
+     * @param wins     How many more simulated elections the Democrats won that district in.
+     */
+    public void recordWins(int district, long wins) {
+        districtWins[district] += wins;
+    }
+
+    /**
+     * Record the end of a simulated election.
+     *
+     * @param seats How many seats the Democrats won in that election.
+     */
+    public void recordIteration(int seats) {
+        histogram[seats]++;
+        seatSum += seats;
+        seatSquareSum += (long) seats * seats;
+        iterations++;
+    }
+
+    /**
+     * Mark every iteration recorded so far as one independent replicate. Each simulation task calls this once, on its
+     * own result, before the results are merged.
+     *
+     * @param majority The number of seats needed for a majority.
+     */
+    public void recordReplicate(int majority) {
+        double majorityProbability = getMajorityProbability(majority);
+        double averageSeats = getAverageSeats();
+        replicates++;
+        replicateMajoritySquareSum += iterations * majorityProbability * majorityProbability;
+        replicateSeatsSquareSum += iterations * averageSeats * averageSeats;
+    }
+
+    /**
+     * Add the counts from another result into this one.
+     *
+     * @param other A result for the same set of districts.
+     */
+    public void merge(SimulationResult other) {
+        for (int i = 0; i < histogram.length; i++) {
+            histogram[i] += other.histogram[i];
+        }
+        for (int i = 0; i < districtWins.length; i++) {
+            districtWins[i] += other.districtWins[i];
+        }
+        iterations += other.iterations;
+        seatSum += other.seatSum;
+        seatSquareSum += other.seatSquareSum;
+        replicates += other.replicates;
+        replicateMajoritySquareSum += other.replicateMajoritySquareSum;
+        replicateSeatsSquareSum += other.replicateSeatsSquareSum;
+    }
+
+    /**
+     * Write every count, so {@link #readFrom} can restore this result exactly.
+     *
+     * @param out Where to write the counts.
+     * @throws IOException If the writing fails.
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeInt(districtWins.length);
+        for (long count : histogram) {
+            out.writeLong(count);
+        }
+        for (long wins : districtWins) {
+            out.writeLong(wins);
+        }
+        out.writeLong(iterations);
+        out.writeLong(seatSum);
+        out.writeLong(seatSquareSum);
+        out.writeLong(replicates);
+        out.writeDouble(replicateMajoritySquareSum);
+        out.writeDouble(replicateSeatsSquareSum);
+    }
+
+    /**
+     * Restore a result written by {@link #writeTo}.
+     *
+     * @param in Where to read the counts.
+     * @return A result with exactly the counts that were written.
+     * @throws IOException If the reading fails.
+     */
+    public static SimulationResult readFrom(DataInput in) throws IOException {
+        SimulationResult result = new SimulationResult(in.readInt());
+        for (int i = 0; i < result.histogram.length; i++) {
+            result.histogram[i] = in.readLong();
+        }
+        for (int i = 0; i < result.districtWins.length; i++) {
+            result.districtWins[i] = in.readLong();
+        }
+        result.iterations = in.readLong();
+        result.seatSum = in.readLong();
+        result.seatSquareSum = in.readLong();
+        result.replicates = in.readLong();
+        result.replicateMajoritySquareSum = in.readDouble();
+        result.replicateSeatsSquareSum = in.readDouble();
+        return result;
+    }
+
+    /**
+     * @return How many times the Democrats won each number of seats, indexed by seat count.
+     */
+    public long[] getHistogram() {
+        return histogram;
+    }
+
+    /**
+     * @return How many times the Democrats won each district.
+     */
+    public long[] getDistrictWins() {
+        return districtWins;
+    }
+
+    /**
+     * @return How many elections have been simulated.
+     */
+    public long getIterations() {
+        return iterations;
+    }
+
+    /**
+     * @return How many seats the Democrats won, on average.
+     */
+    public double getAverageSeats() {
+        return (double) seatSum / iterations;
+    }
+
+    /**
+     * @param district The index of the district.
+     * @return The fraction of simulated elections in which the Democrats won that district.
+     */
+    public double getDistrictWinChance(int district) {
+        return (double) districtWins[district] / iterations;
+    }
+
+    /**
+     * @param majority The number of seats needed for a majority.
+     * @return The fraction of simulated elections in which the Democrats won at least that many seats.
+     */
+    public double getMajorityProbability(int majority) {
+        long wins = 0;
+        for (int i = majority; i < histogram.length; i++) {
+            wins += histogram[i];
+        }
+        return (double) wins / iterations;
+    }
+
+    /**
+     * @param majority The number of seats needed for a majority.
+     * @return The standard error of {@link #getMajorityProbability(int)}.
+     */
+    public double getMajorityStdError(int majority) {
+        double p = getMajorityProbability(majority);
+        return Math.sqrt(p * (1 - p) / iterations);
+    }
+
+    /**
+     * The Agresti-Coull standard error of {@link #getMajorityProbability(int)}, which adds two wins and two losses
+     * before using the binomial formula. Unlike {@link #getMajorityStdError(int)}, it isn't 0 when every iteration so
+     * far has the same majority, so it's safe to stop on.
+     *
+     * @param majority The number of seats needed for a majority.
+     * @return The adjusted standard error, which is always positive.
+     */
+    public double getAdjustedMajorityStdError(int majority) {
+        long wins = 0;
+        for (int i = majority; i < histogram.length; i++) {
+            wins += histogram[i];
+        }
+        double n = iterations + 4.;
+        double p = (wins + 2) / n;
+        return Math.sqrt(p * (1 - p) / n);
+    }
+
+    /**
+     * @return The standard error of {@link #getAverageSeats()}.
+     */
+    public double getSeatsStdError() {
+        double mean = getAverageSeats();
+        double variance = (double) seatSquareSum / iterations - mean * mean;
+        return Math.sqrt(Math.max(variance, 0) / iterations);
+    }
+
+    /**
+     * @return The counts normalized into probabilities.
+     */
+    public SeatDistribution toSeatDistribution() {
+        double[] seatProbabilities = new double[histogram.length];
+        for (int i = 0; i < histogram.length; i++) {
+            seatProbabilities[i] = (double) histogram[i] / iterations;
+        }
+        double[] districtWinChances = new double[districtWins.length];
+        for (int i = 0; i < districtWins.length; i++) {
+            districtWinChances[i] = getDistrictWinChance(i);
+        }
+        return new SeatDistribution(seatProbabilities, districtWinChances);
+    }
+
+    /**
+     * @return How many independent replicates these counts came from.
+     */
+    public long getReplicates() {
+        return replicates;
+    }
+
+    /**
+     * The standard error of {@link #getMajorityProbability(int)}, estimated from the spread between replicates. Unlike
+     * {@link #getMajorityStdError(int)}, this is still right when the iterations within a replicate aren't
+     * independent.
+     *
+     * @param majority The number of seats needed for a majority. Must be the same one the replicates were recorded
+     *                 with.
+     * @return The standard error, or NaN with fewer than 2 replicates.
+     */
+    public double getReplicateMajorityStdError(int majority) {
+        double p = getMajorityProbability(majority);
+        return Math.sqrt(replicateVariance(replicateMajoritySquareSum, p) / iterations);
+    }
+
+    /**
+     * The standard error of {@link #getAverageSeats()}, estimated from the spread between replicates.
+     *
+     * @return The standard error, or NaN with fewer than 2 replicates.
+     */
+    public double getReplicateSeatsStdError() {
+        return Math.sqrt(replicateVariance(replicateSeatsSquareSum, getAverageSeats()) / iterations);
+    }
+
+    /**
+     * How the variance of the majority probability compares to what plain Monte Carlo would give with the same number
+     * of iterations. 0.25 means a quarter of the iterations would give the same accuracy.
+     *
+     * @param majority The number of seats needed for a majority. Must be the same one the replicates were recorded
+     *                 with.
+     * @return The variance ratio, or NaN with fewer than 2 replicates.
+     */
+    public double getMajorityVarianceRatio(int majority) {
+        double p = getMajorityProbability(majority);
+        return replicateVariance(replicateMajoritySquareSum, p) / (p * (1 - p));
+    }
+
+    /**
+     * How the variance of the expected seats compares to what plain Monte Carlo would give with the same number of
+     * iterations.
+     *
+     * @return The variance ratio, or NaN with fewer than 2 replicates.
+     */
+    public double getSeatsVarianceRatio() {
+        double mean = getAverageSeats();
+        return replicateVariance(replicateSeatsSquareSum, mean) / ((double) seatSquareSum / iterations - mean * mean);
+    }
+
+    /**
+     * The variance of one iteration's worth of a replicate estimate. Each replicate's estimate has a variance of about
+     * this divided by its iterations, so weighting each squared deviation by the replicate's iterations puts them all
+     * on the same scale.
+     *
+     * @param weightedSquareSum The sum over replicates of (replicate iterations * replicate estimate^2).
+     * @param mean              The estimate over all replicates combined.
+     * @return The variance, or NaN with fewer than 2 replicates.
+     */
+    private double replicateVariance(double weightedSquareSum, double mean) {
+        if (replicates < 2) {
+            return Double.NaN;
+        }
+        return Math.max(weightedSquareSum - iterations * mean * mean, 0) / (replicates - 1);
+    }
+}
@@ -0,0 +1,946 @@
+package simulation;
+
+import rng.RandomStream;
+import rng.RngType;
+import util.StudentT;
+
+import java.lang.reflect.Constructor;
+import java.util.function.Supplier;
+
+/**
+ * Options for a simulation run that don't come from the model itself.
+ */
+public class SimulationSettings {
+
+    /**
+     * The ways to decide each district once the national noise is known.
+     */
+    public enum KernelType {
+        /**
+         * One district at a time, with the exact normal CDF.
+         */
+        SCALAR,
+        /**
+         * One district at a time, with the table-interpolated normal CDF.
+         */
+        FAST,
+        /**
+         * Every district at once, with the table-interpolated normal CDF, in SIMD lanes if the jdk.incubator.vector
+         * module is there and in flat, branch-free passes otherwise.
+         */
+        BATCH,
+        /**
+         * Cubic Hermite interpolation in a per-district table of win chances over the national noise.
+         */
+        TABLE,
+        /**
+         * Linear interpolation in a per-district table of win chances over the national noise.
+         */
+        TABLE_LINEAR;
+
+        /**
+         * Parse a kernel type from a string. Not case-sensitive.
+         *
+         * @param kernel The name of a kernel type, e.g. "batch".
+         * @return The corresponding kernel type.
+         * @throws IllegalArgumentException If the name doesn't match any kernel type.
+         */
+        public static KernelType parseFromString(String kernel) {
+            return valueOf(kernel.toUpperCase().replace('-', '_'));
+        }
+
+        /**
+         * Do any work that can be shared by every task, like building a table, then return a way to create kernels.
+         * Each task needs its own kernel, since kernels can keep scratch space. The hierarchical error model always
+         * uses {@link HierarchicalKernel}, and Student's t district errors always use {@link StudentTKernel}, both with
+         * the fast CDF for {@link #FAST} and the exact one otherwise. {@link #BATCH} uses {@code VectorKernel} if it
+         * was compiled and the jdk.incubator.vector module is there, and {@link BatchKernel} otherwise.
+         *
+         * @param districts The districts to simulate.
+         * @param settings  The settings for the run, for the table tolerance and the error model.
+         * @return Creates a new kernel each time it's called.
+         * @throws IllegalArgumentException If a table can't be built within the tolerance, a district isn't in a known
+         *                                  state for the hierarchical error model, the district degrees of freedom
+         *                                  aren't above 2, both the hierarchical model and t errors are picked, or
+         *                                  t errors are picked with a kernel other than scalar or fast.
+         */
+        public Supplier<WinChanceKernel> prepare(CompiledDistricts districts, SimulationSettings settings) {
+            return prepare(districts, settings, null);
+        }
+
+        /**
+         * Build whatever the kernel shares across tasks, with the hierarchical error model's states numbered a given
+         * way, so kernels for different sets of races can share one set of regional and state shocks.
+         *
+         * @param districts The districts to simulate.
+         * @param settings  The settings for the run, for the table tolerance and the error model.
+         * @param groups    Which state and region each district is in, or null to group the districts by themselves.
+         *                  Only used by the hierarchical error model.
+         * @return Creates a new kernel each time it's called.
+         * @throws IllegalArgumentException For the same reasons as the two-argument version.
+         */
+        public Supplier<WinChanceKernel> prepare(CompiledDistricts districts, SimulationSettings settings,
+                                                 StateGroups groups) {
+            if (settings.getDistrictDegreesOfFreedom() < Double.POSITIVE_INFINITY) {
+                if (settings.getErrorModel() == ErrorModel.HIERARCHICAL) {
+                    throw new IllegalArgumentException("Student's t district errors only work with independent "
+                            + "residual errors");
+                }
+                if (this != SCALAR && this != FAST) {
+                    throw new IllegalArgumentException("Student's t district errors only work with the scalar and fast "
+                            + "kernels, got " + this);
+                }
+                StudentT distribution = new StudentT(settings.getDistrictDegreesOfFreedom());
+                return () -> new StudentTKernel(districts, distribution, this == FAST);
+            }
+            if (settings.getErrorModel() == ErrorModel.HIERARCHICAL) {
+                StateGroups states = groups != null ? groups : new StateGroups(districts.getDistricts());
+                double regionalShare = settings.getRegionalVarianceShare();
+                double stateShare = settings.getStateVarianceShare();
+                return () -> new HierarchicalKernel(districts, states, regionalShare, stateShare, this == FAST);
+            }
+            switch (this) {
+                case BATCH:
+                    Supplier<WinChanceKernel> vector = loadVectorKernel(districts);
+                    //A build diagnostic, so only shown alongside the progress reports.
+                    if (settings.getProgressMillis() > 0) {
+                        System.out.println("Batch kernel: " + (vector != null ? "SIMD lanes" : "flat passes, since "
+                                + "the vector kernel or the jdk.incubator.vector module isn't available"));
+                    }
+                    return vector != null ? vector : () -> new BatchKernel(districts);
+                case FAST:
+                    return () -> new ScalarKernel(districts, true);
+                case TABLE:
+                case TABLE_LINEAR:
+                    WinChanceTable table = new WinChanceTable(districts, this == TABLE, settings.getTableTolerance());
+                    //A build diagnostic, so only shown alongside the progress reports.
+                    if (settings.getProgressMillis() > 0) {
+                        System.out.println("Win chance table: " + table.getPoints() + " points, "
+                                + table.getPointsPerStDv() + " per standard deviation, max error "
+                                + table.getMaxError());
+                    }
+                    return () -> new TableKernel(districts, table);
+                default:
+                    return () -> new ScalarKernel(districts, false);
+            }
+        }
+
+        /**
+         * Find the SIMD batch kernel. It's only compiled, and only works, with the incubating jdk.incubator.vector
+         * module.
+         *
+         * @param districts The districts to simulate.
+         * @return Creates a new {@code VectorKernel} each time it's called, or null if the module isn't in the boot
+         * layer or the class wasn't compiled.
+         */
+        private static Supplier<WinChanceKernel> loadVectorKernel(CompiledDistricts districts) {
+            if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+                return null;
+            }
+            Constructor<? extends WinChanceKernel> constructor;
+            try {
+                constructor = Class.forName("simulation.VectorKernel").asSubclass(WinChanceKernel.class)
+                        .getConstructor(CompiledDistricts.class);
+            } catch (ReflectiveOperationException | LinkageError e) {
+                return null;
+            }
+            return () -> {
+                try {
+                    return constructor.newInstance(districts);
+                } catch (ReflectiveOperationException e) {
+                    throw new IllegalStateException("Couldn't create the vector kernel", e);
+                }
+            };
+        }
+    }
+
+    /**
+     * The ways to correlate the districts' residual errors.
+     */
+    public enum ErrorModel {
+        /**
+         * Only the national noise is shared, and every district's residual error is independent.
+         */
+        INDEPENDENT,
+        /**
+         * Part of each district's residual variance comes from regional and state shocks shared with its neighbors.
+         */
+        HIERARCHICAL;
+
+        /**
+         * Parse an error model from a string. Not case-sensitive.
+         *
+         * @param model The name of an error model, e.g. "hierarchical".
+         * @return The corresponding error model.
+         * @throws IllegalArgumentException If the name doesn't match any error model.
+         */
+        public static ErrorModel parseFromString(String model) {
+            return valueOf(model.toUpperCase());
+        }
+    }
+
+    /**
+     * The ways to draw the national noise.
+     */
+    public enum NoiseSampling {
+        /**
+         * Independent draws.
+         */
+        MONTE_CARLO,
+        /**
+         * Antithetic pairs, each draw followed by its negative.
+         */
+        ANTITHETIC,
+        /**
+         * One draw from each of a task's equal-probability strata.
+         */
+        STRATIFIED,
+        /**
+         * A randomly shifted Sobol sequence.
+         */
+        SOBOL;
+
+        /**
+         * Parse a noise sampling strategy from a string. Not case-sensitive.
+         *
+         * @param sampling The name of a noise sampling strategy, e.g. "sobol".
+         * @return The corresponding strategy.
+         * @throws IllegalArgumentException If the name doesn't match any strategy.
+         */
+        public static NoiseSampling parseFromString(String sampling) {
+            return valueOf(sampling.toUpperCase().replace('-', '_'));
+        }
+
+        /**
+         * Create a sampler for one task.
+         *
+         * @param random     The task's random stream.
+         * @param iterations The number of iterations in the task.
+         * @return A new sampler.
+         */
+        public NoiseSampler create(RandomStream random, int iterations) {
+            switch (this) {
+                case ANTITHETIC:
+                    return new AntitheticNoise(random);
+                case STRATIFIED:
+                    return new StratifiedNoise(random, iterations);
+                case SOBOL:
+                    return new SobolNoise(random);
+                default:
+                    return new MonteCarloNoise(random);
+            }
+        }
+    }
+
+    /**
+     * The maximum number of generic ballots to simulate.
+     */
+    private long iterations;
+
+    /**
+     * How many generic ballots to simulate between checks of the stopping conditions.
+     */
+    private int batchSize;
+
+    /**
+     * Stop once the standard error of the majority probability is at most this. 0 to not check it.
+     */
+    private double targetMajorityStdError;
+
+    /**
+     * Stop once the standard error of the expected seats is at most this. 0 to not check it.
+     */
+    private double targetSeatsStdError;
+
+    /**
+     * Stop once the run has taken this many milliseconds. 0 for no limit.
+     */
+    private long timeBudgetMillis;
+
+    /**
+     * The number of seats needed for a majority.
+     */
+    private int majority;
+
+    /**
+     * The seed for the random streams.
+     */
+    private long seed;
+
+    /**
+     * How many threads to split the simulations across.
+     */
+    private int threads;
+
+    /**
+     * The way to decide each district once the national noise is known.
+     */
+    private KernelType kernelType;
+
+    /**
+     * The random number generator algorithm.
+     */
+    private RngType rngType;
+
+    /**
+     * The way to draw the national noise.
+     */
+    private NoiseSampling noiseSampling;
+
+    /**
+     * The largest acceptable difference between a tabulated win chance and the exact one.
+     */
+    private double tableTolerance;
+
+    /**
+     * How close to 0 or 1 a district's win chance has to stay to be pruned out of the simulation loop.
+     */
+    private double pruneTolerance;
+
+    /**
+     * How many standard deviations of national noise a district's win chance has to stay safe across to be pruned.
+     */
+    private double pruneLimit;
+
+    /**
+     * The number of generic ballots to simulate for each importance-sampled tail region.
+     */
+    private int tailIterations;
+
+    /**
+     * How the districts' residual errors are correlated.
+     */
+    private ErrorModel errorModel;
+
+    /**
+     * The share of each district's residual variance that comes from the regional shock, for the hierarchical model.
+     */
+    private double regionalVarianceShare;
+
+    /**
+     * The share of each district's residual variance that comes from the state shock, for the hierarchical model.
+     */
+    private double stateVarianceShare;
+
+    /**
+     * The degrees of freedom of the Student's t national noise, or infinity for normal noise.
+     */
+    private double nationalDegreesOfFreedom;
+
+    /**
+     * The degrees of freedom of the Student's t district residual errors, or infinity for normal errors.
+     */
+    private double districtDegreesOfFreedom;
+
+    /**
+     * Whether to keep streaming quantile sketches of each district's vote share in vote share mode.
+     */
+    private boolean quantileSketches;
+
+    /**
+     * Whether to count how often each district is the tipping point in vote share mode.
+     */
+    private boolean tippingPoints;
+
+    /**
+     * Whether to count how often the Democrats win each pair of competitive districts together.
+     */
+    private boolean coWins;
+
+    /**
+     * How close to 0 or 1 a district's win chance can be and still count as competitive for the co-win matrix.
+     */
+    private double coWinThreshold;
+
+    /**
+     * The file to store every election's district outcomes in for {@link OutcomeQuery}, or null to not store them.
+     */
+    private String outcomeFile;
+
+    /**
+     * The file to write every election's national noise and district vote shares to in vote share mode, or null to
+     * not write them.
+     */
+    private String rawDrawFile;
+
+    /**
+     * The file to checkpoint the counts to between batches, or null to not checkpoint.
+     */
+    private String checkpointFile;
+
+    /**
+     * How many batches to run between checkpoints.
+     */
+    private int checkpointBatches;
+
+    /**
+     * Whether to continue from the checkpoint file, if it exists, instead of starting over.
+     */
+    private boolean resume;
+
+    /**
+     * How often to report progress while simulating, in milliseconds, or 0 to not report it.
+     */
+    private long progressMillis;
+
+    /**
+     * Which slice of the run this process simulates, from 0 to the shard count - 1.
+     */
+    private int shardIndex;
+
+    /**
+     * How many processes the run is split across. Shard k runs batches k, k + shard count, k + 2 * shard count, ...
+     */
+    private int shardCount;
+
+    /**
+     * Default constructor. Uses the scalar kernel, the L64X128 generator, plain Monte Carlo noise, every available
+     * processor, batches of 100,000, a 218 seat majority, a win chance table tolerance of 1e-6 if a table kernel is
+     * picked, pruning of districts whose win chance stays within 1e-9 of 0 or 1 across 6 standard deviations of
+     * national noise, 100,000 iterations per importance-sampled tail region, independent residual errors (with 10% of
+     * the residual variance regional and 20% state-level if the hierarchical model is picked), normal national and
+     * district errors, no quantile sketches or tipping points, no co-win matrix (over districts with a 1% to 99% win
+     * chance if it's turned on), no outcome or raw draw file, no checkpoints (every 10 batches if they're turned on),
+     * no progress reports, one shard, and no stopping conditions besides the number of iterations.
+     *
+     * @param iterations The maximum number of generic ballots to simulate.
+     * @param seed       The seed for the random streams.
+     */
+    public SimulationSettings(long iterations, long seed) {
+        this.iterations = iterations;
+        this.batchSize = 100000;
+        this.majority = 218;
+        this.checkpointBatches = 10;
+        this.shardCount = 1;
+        this.seed = seed;
+        this.threads = Runtime.getRuntime().availableProcessors();
+        this.kernelType = KernelType.SCALAR;
+        this.rngType = RngType.L64X128;
+        this.noiseSampling = NoiseSampling.MONTE_CARLO;
+        this.tableTolerance = 1e-6;
+        this.pruneTolerance = 1e-9;
+        this.pruneLimit = 6;
+        this.tailIterations = 100000;
+        this.errorModel = ErrorModel.INDEPENDENT;
+        this.regionalVarianceShare = 0.1;
+        this.stateVarianceShare = 0.2;
+        this.nationalDegreesOfFreedom = Double.POSITIVE_INFINITY;
+        this.districtDegreesOfFreedom = Double.POSITIVE_INFINITY;
+        this.coWinThreshold = 0.01;
+    }
+
+    /**
+     * @return The maximum number of generic ballots to simulate.
+     */
+    public long getIterations() {
+        return iterations;
+    }
+
+    /**
+     * @param iterations The maximum number of generic ballots to simulate.
+     */
+    public void setIterations(long iterations) {
+        this.iterations = iterations;
+    }
+
+    /**
+     * @return How many generic ballots to simulate between checks of the stopping conditions.
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * @param batchSize How many generic ballots to simulate between checks of the stopping conditions. Changing this
+     *                  changes which random streams are used, so runs are only reproducible with the same batch size.
+     *                  Must be at least 1.
+     * @throws IllegalArgumentException If the batch size is less than 1.
+     */
+    public void setBatchSize(int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be at least 1, got " + batchSize);
+        }
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * @return Stop once the standard error of the majority probability is at most this. 0 to not check it.
+     */
+    public double getTargetMajorityStdError() {
+        return targetMajorityStdError;
+    }
+
+    /**
+     * @param targetMajorityStdError Stop once the standard error of the majority probability is at most this. 0 to not
+     *                               check it. If a seats target is also set, both have to be met.
+     */
+    public void setTargetMajorityStdError(double targetMajorityStdError) {
+        this.targetMajorityStdError = targetMajorityStdError;
+    }
+
+    /**
+     * @return Stop once the standard error of the expected seats is at most this. 0 to not check it.
+     */
+    public double getTargetSeatsStdError() {
+        return targetSeatsStdError;
+    }
+
+    /**
+     * @param targetSeatsStdError Stop once the standard error of the expected seats is at most this. 0 to not check it.
+     *                            If a majority target is also set, both have to be met.
+     */
+    public void setTargetSeatsStdError(double targetSeatsStdError) {
+        this.targetSeatsStdError = targetSeatsStdError;
+    }
+
+    /**
+     * @return Stop once the run has taken this many milliseconds. 0 for no limit.
+     */
+    public long getTimeBudgetMillis() {
+        return timeBudgetMillis;
+    }
+
+    /**
+     * @param timeBudgetMillis Stop once the run has taken this many milliseconds. 0 for no limit. Checked after every
+     *                         batch, so a run can go over by up to one batch.
+     */
+    public void setTimeBudgetMillis(long timeBudgetMillis) {
+        this.timeBudgetMillis = timeBudgetMillis;
+    }
+
+    /**
+     * @return The number of seats needed for a majority.
+     */
+    public int getMajority() {
+        return majority;
+    }
+
+    /**
+     * @param majority The number of seats needed for a majority.
+     */
+    public void setMajority(int majority) {
+        this.majority = majority;
+    }
+
+    /**
+     * @return The seed for the random streams.
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * @param seed The seed for the random streams.
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * @return How many threads to split the simulations across.
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * @param threads How many threads to split the simulations across.
+     */
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    /**
+     * @return The way to decide each district once the national noise is known.
+     */
+    public KernelType getKernelType() {
+        return kernelType;
+    }
+
+    /**
+     * @param kernelType The way to decide each district once the national noise is known.
+     */
+    public void setKernelType(KernelType kernelType) {
+        this.kernelType = kernelType;
+    }
+
+    /**
+     * @return The random number generator algorithm.
+     */
+    public RngType getRngType() {
+        return rngType;
+    }
+
+    /**
+     * @param rngType The random number generator algorithm.
+     */
+    public void setRngType(RngType rngType) {
+        this.rngType = rngType;
+    }
+
+    /**
+     * @return The way to draw the national noise.
+     */
+    public NoiseSampling getNoiseSampling() {
+        return noiseSampling;
+    }
+
+    /**
+     * @param noiseSampling The way to draw the national noise.
+     */
+    public void setNoiseSampling(NoiseSampling noiseSampling) {
+        this.noiseSampling = noiseSampling;
+    }
+
+    /**
+     * @return The largest acceptable difference between a tabulated win chance and the exact one.
+     */
+    public double getTableTolerance() {
+        return tableTolerance;
+    }
+
+    /**
+     * @param tableTolerance The largest acceptable difference between a tabulated win chance and the exact one. Only
+     *                       used by the table kernels.
+     */
+    public void setTableTolerance(double tableTolerance) {
+        this.tableTolerance = tableTolerance;
+    }
+
+    /**
+     * @return How close to 0 or 1 a district's win chance has to stay to be pruned out of the simulation loop.
+     */
+    public double getPruneTolerance() {
+        return pruneTolerance;
+    }
+
+    /**
+     * @param pruneTolerance How close to 0 or 1 a district's win chance has to stay to be pruned out of the simulation
+     *                       loop. 0 to simulate every district.
+     */
+    public void setPruneTolerance(double pruneTolerance) {
+        this.pruneTolerance = pruneTolerance;
+    }
+
+    /**
+     * @return How many standard deviations of national noise a district's win chance has to stay safe across to be
+     * pruned.
+     */
+    public double getPruneLimit() {
+        return pruneLimit;
+    }
+
+    /**
+     * @param pruneLimit How many standard deviations of national noise a district's win chance has to stay safe across
+     *                   to be pruned.
+     */
+    public void setPruneLimit(double pruneLimit) {
+        this.pruneLimit = pruneLimit;
+    }
+
+    /**
+     * @return The number of generic ballots to simulate for each importance-sampled tail region.
+     */
+    public int getTailIterations() {
+        return tailIterations;
+    }
+
+    /**
+     * @param tailIterations The number of generic ballots to simulate for each importance-sampled tail region.
+     */
+    public void setTailIterations(int tailIterations) {
+        this.tailIterations = tailIterations;
+    }
+
+    /**
+     * @return How the districts' residual errors are correlated.
+     */
+    public ErrorModel getErrorModel() {
+        return errorModel;
+    }
+
+    /**
+     * @param errorModel How the districts' residual errors are correlated.
+     */
+    public void setErrorModel(ErrorModel errorModel) {
+        this.errorModel = errorModel;
+    }
+
+    /**
+     * @return The share of each district's residual variance that comes from the regional shock, for the
+     * hierarchical model.
+     */
+    public double getRegionalVarianceShare() {
+        return regionalVarianceShare;
+    }
+
+    /**
+     * @param regionalVarianceShare The share of each district's residual variance that comes from the regional shock,
+     *                              for the hierarchical model.
+     */
+    public void setRegionalVarianceShare(double regionalVarianceShare) {
+        this.regionalVarianceShare = regionalVarianceShare;
+    }
+
+    /**
+     * @return The share of each district's residual variance that comes from the state shock, for the hierarchical
+     * model.
+     */
+    public double getStateVarianceShare() {
+        return stateVarianceShare;
+    }
+
+    /**
+     * @param stateVarianceShare The share of each district's residual variance that comes from the state shock, for
+     *                           the hierarchical model.
+     */
+    public void setStateVarianceShare(double stateVarianceShare) {
+        this.stateVarianceShare = stateVarianceShare;
+    }
+
+    /**
+     * Create the national noise sampler for one task: the noise sampling strategy, turned into Student's t draws if
+     * the national degrees of freedom are finite.
+     *
+     * @param random     The task's random stream.
+     * @param iterations The number of iterations in the task.
+     * @return A new sampler.
+     */
+    public NoiseSampler createNoiseSampler(RandomStream random, int iterations) {
+        NoiseSampler sampler = noiseSampling.create(random, iterations);
+        if (nationalDegreesOfFreedom < Double.POSITIVE_INFINITY) {
+            return new StudentTNoise(sampler, random, nationalDegreesOfFreedom);
+        }
+        return sampler;
+    }
+
+    /**
+     * @return Whether both the national noise and the district residual errors are normal. Safe seat pruning assumes
+     * they are.
+     */
+    public boolean isGaussian() {
+        return nationalDegreesOfFreedom == Double.POSITIVE_INFINITY
+                && districtDegreesOfFreedom == Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * @return The degrees of freedom of the Student's t national noise, or infinity for normal noise.
+     */
+    public double getNationalDegreesOfFreedom() {
+        return nationalDegreesOfFreedom;
+    }
+
+    /**
+     * @param nationalDegreesOfFreedom The degrees of freedom of the Student's t national noise, or infinity for normal
+     *                                 noise. Must be above 2.
+     * @throws IllegalArgumentException If the degrees of freedom aren't above 2.
+     */
+    public void setNationalDegreesOfFreedom(double nationalDegreesOfFreedom) {
+        if (!(nationalDegreesOfFreedom > 2)) {
+            throw new IllegalArgumentException("Student's t needs more than 2 degrees of freedom, got "
+                    + nationalDegreesOfFreedom);
+        }
+        this.nationalDegreesOfFreedom = nationalDegreesOfFreedom;
+    }
+
+    /**
+     * @return The degrees of freedom of the Student's t district residual errors, or infinity for normal errors.
+     */
+    public double getDistrictDegreesOfFreedom() {
+        return districtDegreesOfFreedom;
+    }
+
+    /**
+     * @param districtDegreesOfFreedom The degrees of freedom of the Student's t district residual errors, or infinity
+     *                                 for normal errors. Must be above 2.
+     * @throws IllegalArgumentException If the degrees of freedom aren't above 2.
+     */
+    public void setDistrictDegreesOfFreedom(double districtDegreesOfFreedom) {
+        if (!(districtDegreesOfFreedom > 2)) {
+            throw new IllegalArgumentException("Student's t needs more than 2 degrees of freedom, got "
+                    + districtDegreesOfFreedom);
+        }
+        this.districtDegreesOfFreedom = districtDegreesOfFreedom;
+    }
+
+    /**
+     * @return Whether to keep streaming quantile sketches of each district's vote share in vote share mode.
+     */
+    public boolean isQuantileSketches() {
+        return quantileSketches;
+    }
+
+    /**
+     * @param quantileSketches Whether to keep streaming quantile sketches of each district's vote share in vote share
+     *                         mode.
+     */
+    public void setQuantileSketches(boolean quantileSketches) {
+        this.quantileSketches = quantileSketches;
+    }
+
+    /**
+     * @return Whether to count how often each district is the tipping point in vote share mode.
+     */
+    public boolean isTippingPoints() {
+        return tippingPoints;
+    }
+
+    /**
+     * @param tippingPoints Whether to count how often each district is the tipping point in vote share mode.
+     */
+    public void setTippingPoints(boolean tippingPoints) {
+        this.tippingPoints = tippingPoints;
+    }
+
+    /**
+     * @return Whether to count how often the Democrats win each pair of competitive districts together.
+     */
+    public boolean isCoWins() {
+        return coWins;
+    }
+
+    /**
+     * @param coWins Whether to count how often the Democrats win each pair of competitive districts together.
+     */
+    public void setCoWins(boolean coWins) {
+        this.coWins = coWins;
+    }
+
+    /**
+     * @return How close to 0 or 1 a district's win chance can be and still count as competitive for the co-win
+     * matrix.
+     */
+    public double getCoWinThreshold() {
+        return coWinThreshold;
+    }
+
+    /**
+     * @param coWinThreshold How close to 0 or 1 a district's win chance can be and still count as competitive for the
+     *                       co-win matrix.
+     */
+    public void setCoWinThreshold(double coWinThreshold) {
+        this.coWinThreshold = coWinThreshold;
+    }
+
+    /**
+     * @return The file to store every election's district outcomes in for {@link OutcomeQuery}, or null to not store
+     * them.
+     */
+    public String getOutcomeFile() {
+        return outcomeFile;
+    }
+
+    /**
+     * @param outcomeFile The file to store every election's district outcomes in for {@link OutcomeQuery}, or null to
+     *                    not store them.
+     */
+    public void setOutcomeFile(String outcomeFile) {
+        this.outcomeFile = outcomeFile;
+    }
+
+    /**
+     * @return The file to write every election's national noise and district vote shares to in vote share mode, or
+     * null to not write them.
+     */
+    public String getRawDrawFile() {
+        return rawDrawFile;
+    }
+
+    /**
+     * @param rawDrawFile The file to write every election's national noise and district vote shares to in vote share
+     *                    mode, or null to not write them.
+     */
+    public void setRawDrawFile(String rawDrawFile) {
+        this.rawDrawFile = rawDrawFile;
+    }
+
+    /**
+     * @return The file to checkpoint the counts to between batches, or null to not checkpoint.
+     */
+    public String getCheckpointFile() {
+        return checkpointFile;
+    }
+
+    /**
+     * @param checkpointFile The file to checkpoint the counts to between batches, or null to not checkpoint.
+     */
+    public void setCheckpointFile(String checkpointFile) {
+        this.checkpointFile = checkpointFile;
+    }
+
+    /**
+     * @return How many batches to run between checkpoints.
+     */
+    public int getCheckpointBatches() {
+        return checkpointBatches;
+    }
+
+    /**
+     * @param checkpointBatches How many batches to run between checkpoints. Must be at least 1.
+     * @throws IllegalArgumentException If checkpointBatches is less than 1.
+     */
+    public void setCheckpointBatches(int checkpointBatches) {
+        if (checkpointBatches < 1) {
+            throw new IllegalArgumentException("Need at least 1 batch between checkpoints, got " + checkpointBatches);
+        }
+        this.checkpointBatches = checkpointBatches;
+    }
+
+    /**
+     * @return Whether to continue from the checkpoint file, if it exists, instead of starting over.
+     */
+    public boolean isResume() {
+        return resume;
+    }
+
+    /**
+     * @param resume Whether to continue from the checkpoint file, if it exists, instead of starting over.
+     */
+    public void setResume(boolean resume) {
+        this.resume = resume;
+    }
+
+    /**
+     * @return How often to report progress while simulating, in milliseconds, or 0 to not report it.
+     */
+    public long getProgressMillis() {
+        return progressMillis;
+    }
+
+    /**
+     * @param progressMillis How often to report progress while simulating, in milliseconds, or 0 to not report it.
+     */
+    public void setProgressMillis(long progressMillis) {
+        this.progressMillis = progressMillis;
+    }
+
+    /**
+     * @return Which slice of the run this process simulates, from 0 to the shard count - 1.
+     */
+    public int getShardIndex() {
+        return shardIndex;
+    }
+
+    /**
+     * @return How many processes the run is split across.
+     */
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    /**
+     * Split the run across several processes. Every process needs the same seed, thread count, batch size, and number
+     * of iterations, and together the shards simulate exactly the batches an unsharded run would.
+     *
+     * @param shardIndex Which slice of the run this process simulates, from 0 to shardCount - 1.
+     * @param shardCount How many processes the run is split across. Must be at least 1.
+     * @throws IllegalArgumentException If the shard count is less than 1 or the index is out of range.
+     */
+    public void setShard(int shardIndex, int shardCount) {
+        if (shardCount < 1 || shardIndex < 0 || shardIndex >= shardCount) {
+            throw new IllegalArgumentException("Shard " + shardIndex + " of " + shardCount + " doesn't exist");
+        }
+        this.shardIndex = shardIndex;
+        this.shardCount = shardCount;
+    }
+}
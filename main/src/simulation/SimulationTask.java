@@ -0,0 +1,176 @@
+package simulation;
+
+import rng.RandomStream;
+
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Simulates a fixed number of elections with its own random stream and its own counts, so it can run alongside other
+ * tasks without sharing any state.
+ */
+public class SimulationTask extends RecursiveTask<SimulationResult> {
+
+    /**
+     * Serialization version. Tasks are never serialized, but RecursiveTask is Serializable.
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The districts to simulate.
+     */
+    private final CompiledDistricts districts;
+
+    /**
+     * The noise sampling strategy and majority to use.
+     */
+    private final SimulationSettings settings;
+
+    /**
+     * The kernel that decides each district, used only by this task.
+     */
+    private final WinChanceKernel kernel;
+
+    /**
+     * The number of elections this task simulates.
+     */
+    private final int iterations;
+
+    /**
+     * The random stream used only by this task.
+     */
+    private final RandomStream random;
+
+    /**
+     * The co-win counts for this task, or null if they aren't kept.
+     */
+    private final CoWinMatrix coWins;
+
+    /**
+     * Where this task writes each election's district outcomes, or null if they aren't stored.
+     */
+    private final OutcomeRecorder recorder;
+
+    /**
+     * Where this task publishes its seat counts for live progress, or null if progress isn't monitored.
+     */
+    private final ProgressCell progress;
+
+    /**
+     * Default constructor.
+     *
+     * @param districts  The districts to simulate.
+     * @param settings   The noise sampling strategy and majority to use.
+     * @param kernel     The kernel that decides each district. Must not be shared with any other task.
+     * @param iterations The number of elections this task simulates.
+     * @param random     The random stream used only by this task. Must not be shared with any other task.
+     * @param coWins     An empty co-win matrix for this task, or null to not keep one. Must not be shared with any
+     *                   other task.
+     * @param recorder   Where to write each election's district outcomes, or null to not store them. Must not be
+     *                   shared with any other task.
+     * @param progress   Where to publish seat counts for live progress, or null to not publish them. Must not be
+     *                   written by any other task while this one runs.
+     */
+    public SimulationTask(CompiledDistricts districts, SimulationSettings settings, WinChanceKernel kernel,
+                          int iterations, RandomStream random, CoWinMatrix coWins, OutcomeRecorder recorder,
+                          ProgressCell progress) {
+        this.districts = districts;
+        this.settings = settings;
+        this.kernel = kernel;
+        this.iterations = iterations;
+        this.random = random;
+        this.coWins = coWins;
+        this.recorder = recorder;
+        this.progress = progress;
+    }
+
+    /**
+     * Run this task's share of the simulations.
+     *
+     * @return The counts from this task's simulations, recorded as one replicate.
+     */
+    @Override
+    protected SimulationResult compute() {
+        NoiseSampler noiseSampler = settings.createNoiseSampler(random, iterations);
+
+        //Pull everything into locals so the loop only touches primitive arrays.
+        double nationalShiftStDv = districts.getNationalShiftStDv();
+        int numActive = districts.getNumActive();
+        int fixedSeats = districts.getFixedSeats();
+        double[] uniforms = new double[numActive];
+        int[] outcomes = new int[numActive];
+        long[] activeWins = new long[numActive];
+        double[] shocks = new double[kernel.getNumShocks()];
+        long[] pending = progress == null ? null : new long[districts.getNumDistricts() + 1];
+
+        SimulationResult result = new SimulationResult(districts.getNumDistricts());
+        for (int i = 0; i < iterations; i++) {
+            //Calculate shift error for this run.
+            double noise = nationalShiftStDv * noiseSampler.next();
+
+            //Shared regional and state shocks, if the kernel has any.
+            if (shocks.length > 0) {
+                random.fillGaussians(shocks);
+                kernel.setShocks(shocks);
+            }
+
+            //One uniform draw per district decides whether Democrats win it.
+            random.fillUniforms(uniforms);
+            int seats = fixedSeats + kernel.simulate(noise, uniforms, outcomes);
+            for (int j = 0; j < numActive; j++) {
+                activeWins[j] += outcomes[j];
+            }
+            result.recordIteration(seats);
+            if (coWins != null) {
+                coWins.recordIteration(outcomes);
+            }
+            if (recorder != null) {
+                recorder.recordIteration(outcomes);
+            }
+            if (progress != null) {
+                pending[seats]++;
+                if ((i + 1) % ProgressMonitor.PUBLISH_INTERVAL == 0) {
+                    progress.publish(pending);
+                }
+            }
+        }
+        if (progress != null) {
+            progress.publish(pending);
+        }
+        if (recorder != null) {
+            recorder.finish();
+        }
+
+        if (coWins != null) {
+            coWins.flush();
+        }
+        addDistrictWins(result, activeWins);
+        result.recordReplicate(settings.getMajority());
+        return result;
+    }
+
+    /**
+     * @return The co-win counts from this task's simulations, or null if they aren't kept. Only complete once the task
+     * has finished.
+     */
+    public CoWinMatrix getCoWins() {
+        return coWins;
+    }
+
+    /**
+     * Move the per-district win counts from the compiled order back into the original district order.
+     *
+     * @param result     The result to add the wins to. Must already have all of this task's iterations recorded.
+     * @param activeWins How many times Democrats won each random district, in compiled order.
+     */
+    private void addDistrictWins(SimulationResult result, long[] activeWins) {
+        int[] activeIndices = districts.getActiveIndices();
+        for (int j = 0; j < activeWins.length; j++) {
+            result.recordWins(activeIndices[j], activeWins[j]);
+        }
+        for (int i = 0; i < districts.getNumDistricts(); i++) {
+            if (districts.isFixed(i) && districts.isFixedWin(i)) {
+                result.recordWins(i, iterations);
+            }
+        }
+    }
+}
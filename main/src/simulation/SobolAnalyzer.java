@@ -0,0 +1,109 @@
+package simulation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+
+/**
+ * Estimates how much of the uncertainty in the House majority comes from each competitive district and from the
+ * national noise, as first-order and total-effect Sobol indices. Uses pick-freeze sampling where every sample pair
+ * shares its simulations across all the inputs (see {@link SobolTask}), so the whole analysis costs about four
+ * simulations per sample instead of a separate run per district. Splits the samples across a fork/join pool in
+ * batches and tasks the same way as {@link ParallelSimulator}, so a given seed, thread count, and batch size always
+ * give the same results.
+ */
+public class SobolAnalyzer {
+
+    /**
+     * The districts to analyze.
+     */
+    private final CompiledDistricts districts;
+
+    /**
+     * The number of samples, seed, thread count, generator, kernel, and majority to use.
+     */
+    private final SimulationSettings settings;
+
+    /**
+     * A source of fresh kernels, one per task.
+     */
+    private final Supplier<WinChanceKernel> kernels;
+
+    /**
+     * Default constructor.
+     *
+     * @param districts The districts to analyze.
+     * @param settings  The number of samples, seed, thread count, generator, kernel, and majority to use. The thread
+     *                  count must be at least 1.
+     * @throws IllegalArgumentException If there are no threads, the error model has shared regional and state shocks,
+     *                                  which aren't one district's input, or a standard error target is set, since the
+     *                                  sample pairs don't keep seat counts to check one against.
+     */
+    public SobolAnalyzer(CompiledDistricts districts, SimulationSettings settings) {
+        if (settings.getThreads() < 1) {
+            throw new IllegalArgumentException("Need at least one thread, got " + settings.getThreads());
+        }
+        if (settings.getErrorModel() != SimulationSettings.ErrorModel.INDEPENDENT) {
+            throw new IllegalArgumentException("Sensitivity analysis needs independent district errors, got "
+                    + settings.getErrorModel());
+        }
+        if (settings.getTargetMajorityStdError() > 0 || settings.getTargetSeatsStdError() > 0) {
+            throw new IllegalArgumentException("Sensitivity analysis can't stop at a standard error target");
+        }
+        this.districts = districts;
+        this.settings = settings;
+        this.kernels = settings.getKernelType().prepare(districts, settings);
+    }
+
+    /**
+     * Draw sample pairs in batches, with a {@link BatchSchedule}, until the iteration limit is reached or the time
+     * budget runs out.
+     *
+     * @return The merged sums from every task in every batch. The inputs are the competitive districts in compiled
+     * order, then the national noise.
+     */
+    public SobolResult run() {
+        SobolResult result = new SobolResult(districts.getNumActive() + 1);
+
+        ForkJoinPool pool = new ForkJoinPool(settings.getThreads());
+        try {
+            BatchSchedule schedule = new BatchSchedule(settings, settings.getMajority());
+            while (schedule.hasNext()) {
+                result.merge(runBatch(pool, schedule.getBatch(), schedule.getBatchIterations()));
+                schedule.next(null);
+            }
+            return result;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Draw one batch of sample pairs across the pool.
+     *
+     * @param pool    The pool to run the tasks on.
+     * @param batch   The index of this batch, which picks the streams its tasks use.
+     * @param samples The number of sample pairs to draw in this batch.
+     * @return The merged sums from every task in the batch.
+     */
+    private SobolResult runBatch(ForkJoinPool pool, int batch, int samples) {
+        int threads = settings.getThreads();
+
+        List<SobolTask> tasks = new ArrayList<>(threads);
+        for (int i = 0; i < threads; i++) {
+            int taskSamples = samples / threads + (i < samples % threads ? 1 : 0);
+            tasks.add(new SobolTask(districts, settings, kernels.get(), taskSamples,
+                    settings.getRngType().create(settings.getSeed(), (long) batch * threads + i)));
+        }
+
+        for (SobolTask task : tasks) {
+            pool.execute(task);
+        }
+        SobolResult result = new SobolResult(districts.getNumActive() + 1);
+        for (SobolTask task : tasks) {
+            result.merge(task.join());
+        }
+        return result;
+    }
+}
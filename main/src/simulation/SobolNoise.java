@@ -0,0 +1,43 @@
+package simulation;
+
+import rng.RandomStream;
+import util.Normal;
+
+/**
+ * Randomized quasi-Monte Carlo: the first dimension of the Sobol sequence (the base-2 van der Corput sequence, which is
+ * also the first dimension of the Halton sequence) with a random digital shift, mapped through the inverse normal CDF.
+ * The points fill [0, 1) far more evenly than random draws, and the random shift, which is different for every task,
+ * keeps each task an unbiased replicate.
+ */
+public class SobolNoise implements NoiseSampler {
+
+    /**
+     * The random digital shift, XORed into the bits of every point.
+     */
+    private final long shift;
+
+    /**
+     * The index of the next point in the sequence.
+     */
+    private long index;
+
+    /**
+     * Default constructor.
+     *
+     * @param random The task's random stream, used once to pick the digital shift.
+     */
+    public SobolNoise(RandomStream random) {
+        //52 random bits, one fewer than a double's mantissa so the middle of every cell is exact.
+        this.shift = (long) (random.nextUniform() * (1L << 52));
+    }
+
+    @Override
+    public double next() {
+        //The van der Corput point is the index with its bits reversed after the binary point.
+        long bits = (Long.reverse(index) >>> 12) ^ shift;
+        index++;
+        //Use the middle of the point's 2^-52 cell so the point is never exactly 0 or 1. With 53 bits, the last cell's
+        // middle would round up to 1 and give infinite noise.
+        return Normal.inverseStandardNormalCDF((bits + 0.5) / (1L << 52));
+    }
+}
@@ -0,0 +1,166 @@
+package simulation;
+
+/**
+ * The sums behind pick-freeze estimates of the first-order and total-effect Sobol indices of the House majority, for
+ * each competitive district's residual error and for the national noise. Every sample draws two independent sets of
+ * inputs, A and B, and for each input i, A with input i taken from B. Call that A_B(i). The majority is 0 or 1, so
+ * every per-sample term is a small integer and the sums are exact counts. Each simulation task keeps its own result,
+ * and the results are merged once every task has finished.
+ * <p>
+ * The first-order index uses Saltelli's estimator, the mean of f(B) * (f(A_B(i)) - f(A)) over the variance. The
+ * total-effect index uses Jansen's, the mean of (f(A) - f(A_B(i)))^2 / 2 over the variance. Both standard errors come
+ * from the spread of the per-sample terms, treating the variance as known.
+ */
+public class SobolResult {
+
+    /**
+     * How many sample pairs have been drawn.
+     */
+    private long samples;
+
+    /**
+     * How many of the A and B samples, together, gave the Democrats a majority.
+     */
+    private long majorities;
+
+    /**
+     * The sum over samples of f(B) * (f(A_B(i)) - f(A)), for each input.
+     */
+    private final long[] firstSums;
+
+    /**
+     * The sum over samples of (f(B) * (f(A_B(i)) - f(A)))^2, for each input, which is how many terms weren't 0.
+     */
+    private final long[] firstSquareSums;
+
+    /**
+     * How many samples had f(A_B(i)) differ from f(A), for each input.
+     */
+    private final long[] changes;
+
+    /**
+     * Default constructor.
+     *
+     * @param numInputs The number of inputs: every competitive district, then the national noise.
+     */
+    public SobolResult(int numInputs) {
+        this.firstSums = new long[numInputs];
+        this.firstSquareSums = new long[numInputs];
+        this.changes = new long[numInputs];
+    }
+
+    /**
+     * Record the A and B outcomes of a sample.
+     *
+     * @param majorityA Whether the Democrats won a majority with inputs A.
+     * @param majorityB Whether the Democrats won a majority with inputs B.
+     */
+    public void recordSample(boolean majorityA, boolean majorityB) {
+        samples++;
+        majorities += (majorityA ? 1 : 0) + (majorityB ? 1 : 0);
+    }
+
+    /**
+     * Record that swapping one input from B into A changed the outcome of a sample. Swaps that change nothing add
+     * nothing to any of the sums, so they don't need recording.
+     *
+     * @param input     The index of the input.
+     * @param majorityA Whether the Democrats won a majority with inputs A. With the swap, they did the opposite.
+     * @param majorityB Whether the Democrats won a majority with inputs B.
+     */
+    public void recordChange(int input, boolean majorityA, boolean majorityB) {
+        changes[input]++;
+        if (majorityB) {
+            firstSums[input] += majorityA ? -1 : 1;
+            firstSquareSums[input]++;
+        }
+    }
+
+    /**
+     * Add the sums from another result.
+     *
+     * @param other A result for the same inputs.
+     */
+    public void merge(SobolResult other) {
+        samples += other.samples;
+        majorities += other.majorities;
+        for (int i = 0; i < changes.length; i++) {
+            firstSums[i] += other.firstSums[i];
+            firstSquareSums[i] += other.firstSquareSums[i];
+            changes[i] += other.changes[i];
+        }
+    }
+
+    /**
+     * @return How many sample pairs have been drawn.
+     */
+    public long getSamples() {
+        return samples;
+    }
+
+    /**
+     * @return The number of inputs.
+     */
+    public int getNumInputs() {
+        return changes.length;
+    }
+
+    /**
+     * @return The share of the A and B samples, together, that gave the Democrats a majority.
+     */
+    public double getMajorityProbability() {
+        return majorities / (2. * samples);
+    }
+
+    /**
+     * @return Whether the majority went both ways in the samples. If it didn't, there's no variance to split up, and
+     * every index is NaN.
+     */
+    public boolean hasVariance() {
+        return majorities > 0 && majorities < 2 * samples;
+    }
+
+    /**
+     * @return The variance of the majority outcome, from the A and B samples together.
+     */
+    public double getVariance() {
+        double p = getMajorityProbability();
+        return p * (1 - p);
+    }
+
+    /**
+     * @param input The index of an input.
+     * @return The share of the majority's variance that input explains on its own.
+     */
+    public double getFirstOrder(int input) {
+        return firstSums[input] / (double) samples / getVariance();
+    }
+
+    /**
+     * @param input The index of an input.
+     * @return The standard error of {@link #getFirstOrder(int)}.
+     */
+    public double getFirstOrderStdError(int input) {
+        double mean = firstSums[input] / (double) samples;
+        double meanSquare = firstSquareSums[input] / (double) samples;
+        return Math.sqrt(Math.max(meanSquare - mean * mean, 0) / samples) / getVariance();
+    }
+
+    /**
+     * @param input The index of an input.
+     * @return The share of the majority's variance that involves that input, on its own or together with others.
+     */
+    public double getTotal(int input) {
+        return changes[input] / (2. * samples) / getVariance();
+    }
+
+    /**
+     * @param input The index of an input.
+     * @return The standard error of {@link #getTotal(int)}.
+     */
+    public double getTotalStdError(int input) {
+        double mean = changes[input] / (2. * samples);
+        double meanSquare = changes[input] / (4. * samples);
+        return Math.sqrt(Math.max(meanSquare - mean * mean, 0) / samples) / getVariance();
+    }
+}
@@ -0,0 +1,118 @@
+package simulation;
+
+import rng.RandomStream;
+
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Draws a fixed number of pick-freeze sample pairs for {@link SobolAnalyzer}, with its own random stream and its own
+ * sums.
+ * <p>
+ * A sample is the national noise and one uniform per competitive district, which decides the district against its win
+ * chance. Four kernel calls per sample cover every input: A, B, the noise of A with the uniforms of B, and the noise of
+ * B with the uniforms of A. The last one is A_B for the national noise. For district j, A_B only changes district j's
+ * outcome, to what it is in the third call, so its seat count is A's minus A's outcome in j plus the third call's. That
+ * can only flip the majority if A is one seat either side of it, so most samples skip the districts entirely.
+ */
+public class SobolTask extends RecursiveTask<SobolResult> {
+
+    /**
+     * Serialization version. Tasks are never serialized, but RecursiveTask is Serializable.
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The districts to analyze.
+     */
+    private final CompiledDistricts districts;
+
+    /**
+     * The majority and national degrees of freedom to use.
+     */
+    private final SimulationSettings settings;
+
+    /**
+     * The kernel that decides each district, used only by this task.
+     */
+    private final WinChanceKernel kernel;
+
+    /**
+     * The number of sample pairs this task draws.
+     */
+    private final int samples;
+
+    /**
+     * The random stream used only by this task.
+     */
+    private final RandomStream random;
+
+    /**
+     * Default constructor.
+     *
+     * @param districts The districts to analyze.
+     * @param settings  The majority and national degrees of freedom to use.
+     * @param kernel    The kernel that decides each district. Must have no shared shocks, and must not be shared with
+     *                  any other task.
+     * @param samples   The number of sample pairs this task draws.
+     * @param random    The random stream used only by this task. Must not be shared with any other task.
+     */
+    public SobolTask(CompiledDistricts districts, SimulationSettings settings, WinChanceKernel kernel, int samples,
+                     RandomStream random) {
+        this.districts = districts;
+        this.settings = settings;
+        this.kernel = kernel;
+        this.samples = samples;
+        this.random = random;
+    }
+
+    /**
+     * Draw this task's share of the samples.
+     *
+     * @return The sums from this task's samples.
+     */
+    @Override
+    protected SobolResult compute() {
+        //Pick-freeze needs independent draws, so the noise is always plain Monte Carlo.
+        NoiseSampler noiseSampler = random::nextGaussian;
+        if (settings.getNationalDegreesOfFreedom() < Double.POSITIVE_INFINITY) {
+            noiseSampler = new StudentTNoise(noiseSampler, random, settings.getNationalDegreesOfFreedom());
+        }
+
+        double nationalShiftStDv = districts.getNationalShiftStDv();
+        int numActive = districts.getNumActive();
+        int needed = settings.getMajority() - districts.getFixedSeats();
+        double[] uniformsA = new double[numActive];
+        double[] uniformsB = new double[numActive];
+        int[] outcomesA = new int[numActive];
+        int[] outcomesSwapped = new int[numActive];
+        SobolResult result = new SobolResult(numActive + 1);
+
+        for (int s = 0; s < samples; s++) {
+            double noiseA = nationalShiftStDv * noiseSampler.next();
+            double noiseB = nationalShiftStDv * noiseSampler.next();
+            random.fillUniforms(uniformsA);
+            random.fillUniforms(uniformsB);
+
+            int seatsA = kernel.simulate(noiseA, uniformsA, outcomesA);
+            boolean majorityA = seatsA >= needed;
+            boolean majorityB = kernel.simulate(noiseB, uniformsB, outcomesSwapped) >= needed;
+            result.recordSample(majorityA, majorityB);
+
+            //The national noise: B's noise with A's uniforms.
+            if (kernel.simulate(noiseB, uniformsA, outcomesSwapped) >= needed != majorityA) {
+                result.recordChange(numActive, majorityA, majorityB);
+            }
+
+            //Each district: A's noise with B's uniform in that district alone.
+            if (seatsA == needed || seatsA == needed - 1) {
+                kernel.simulate(noiseA, uniformsB, outcomesSwapped);
+                for (int j = 0; j < numActive; j++) {
+                    if (seatsA - outcomesA[j] + outcomesSwapped[j] >= needed != majorityA) {
+                        result.recordChange(j, majorityA, majorityB);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+}
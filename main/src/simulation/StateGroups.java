@@ -0,0 +1,123 @@
+package simulation;
+
+import dataholder.District;
+import dataholder.Region;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Which state and which region each district is in, keyed off the "ST" prefix of the district names, e.g. "PA-07".
+ */
+public class StateGroups {
+
+    /**
+     * The index of each district's state, in the original district order.
+     */
+    private final int[] districtStates;
+
+    /**
+     * The index of each state's region, from {@link Region#ordinal()}.
+     */
+    private final int[] stateRegions;
+
+    /**
+     * The two-letter abbreviation of each state.
+     */
+    private final String[] stateNames;
+
+    /**
+     * Group the districts by state, numbering the states in the order they first appear.
+     *
+     * @param districts The districts.
+     * @throws IllegalArgumentException If a district name doesn't start with a known state abbreviation.
+     */
+    public StateGroups(District[] districts) {
+        this.districtStates = new int[districts.length];
+        Map<String, Integer> stateIndices = new HashMap<>();
+        for (int i = 0; i < districts.length; i++) {
+            String state = districts[i].getName().substring(0, 2).toUpperCase();
+            Integer index = stateIndices.get(state);
+            if (index == null) {
+                //Check the state before numbering it, so a bad name fails here rather than in the simulation.
+                Region.ofState(state);
+                index = stateIndices.size();
+                stateIndices.put(state, index);
+            }
+            districtStates[i] = index;
+        }
+
+        this.stateNames = new String[stateIndices.size()];
+        this.stateRegions = new int[stateIndices.size()];
+        for (Map.Entry<String, Integer> entry : stateIndices.entrySet()) {
+            stateNames[entry.getValue()] = entry.getKey();
+            stateRegions[entry.getValue()] = Region.ofState(entry.getKey()).ordinal();
+        }
+    }
+
+    /**
+     * Group the districts by state, numbering the states the same way as another grouping, so kernels built from
+     * either can share one set of state shocks.
+     *
+     * @param districts The districts.
+     * @param numbering A grouping that has every state these districts are in, like one of every district in every
+     *                  race group.
+     * @throws IllegalArgumentException If a district is in a state the numbering doesn't have.
+     */
+    public StateGroups(District[] districts, StateGroups numbering) {
+        this.districtStates = new int[districts.length];
+        for (int i = 0; i < districts.length; i++) {
+            String state = districts[i].getName().substring(0, 2).toUpperCase();
+            districtStates[i] = -1;
+            for (int s = 0; s < numbering.stateNames.length; s++) {
+                if (numbering.stateNames[s].equals(state)) {
+                    districtStates[i] = s;
+                }
+            }
+            if (districtStates[i] < 0) {
+                throw new IllegalArgumentException(districts[i].getName() + " is in a state the shared numbering "
+                        + "doesn't have");
+            }
+        }
+        this.stateNames = numbering.stateNames;
+        this.stateRegions = numbering.stateRegions;
+    }
+
+    /**
+     * @param district The index of a district, in the original district order.
+     * @return The index of the district's state.
+     */
+    public int getState(int district) {
+        return districtStates[district];
+    }
+
+    /**
+     * @param state The index of a state.
+     * @return The index of the state's region, from {@link Region#ordinal()}.
+     */
+    public int getRegion(int state) {
+        return stateRegions[state];
+    }
+
+    /**
+     * @param state The index of a state.
+     * @return The two-letter abbreviation of the state.
+     */
+    public String getStateName(int state) {
+        return stateNames[state];
+    }
+
+    /**
+     * @return How many states the districts are in.
+     */
+    public int getNumStates() {
+        return stateNames.length;
+    }
+
+    /**
+     * @return How many regions there are, whether or not every one has a district.
+     */
+    public int getNumRegions() {
+        return Region.values().length;
+    }
+}
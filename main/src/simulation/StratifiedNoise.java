@@ -0,0 +1,45 @@
+package simulation;
+
+import rng.RandomStream;
+import util.Normal;
+
+/**
+ * Stratified sampling: the task's iterations split [0, 1) into equal strata, draw one uniform from each, and map it
+ * through the inverse normal CDF. Every part of the noise distribution gets exactly its share of the iterations.
+ */
+public class StratifiedNoise implements NoiseSampler {
+
+    /**
+     * The task's random stream.
+     */
+    private final RandomStream random;
+
+    /**
+     * The number of strata, which is the number of iterations in the task.
+     */
+    private final int strata;
+
+    /**
+     * The stratum the next draw comes from.
+     */
+    private int stratum;
+
+    /**
+     * Default constructor.
+     *
+     * @param random     The task's random stream.
+     * @param iterations The number of iterations in the task.
+     */
+    public StratifiedNoise(RandomStream random, int iterations) {
+        this.random = random;
+        this.strata = iterations;
+    }
+
+    @Override
+    public double next() {
+        double u = (stratum + random.nextUniform()) / strata;
+        stratum++;
+        //A uniform of exactly 0 would map to negative infinity.
+        return Normal.inverseStandardNormalCDF(Math.max(u, Double.MIN_NORMAL));
+    }
+}
@@ -0,0 +1,65 @@
+package simulation;
+
+import util.StudentT;
+
+/**
+ * Decides each district one at a time with Student's t residual errors instead of normal ones, scaled to the same
+ * standard deviation, using either the exact t CDF or the table-interpolated one.
+ */
+public class StudentTKernel implements WinChanceKernel {
+
+    /**
+     * (mean - 0.5) / residual standard deviation for each random district.
+     */
+    private final double[] offsets;
+
+    /**
+     * elasticity / residual standard deviation for each random district.
+     */
+    private final double[] slopes;
+
+    /**
+     * The residual error distribution, shared by every task.
+     */
+    private final StudentT distribution;
+
+    /**
+     * Whether to use {@link StudentT#fastStandardizedCDF(double)} instead of the exact CDF.
+     */
+    private final boolean fast;
+
+    /**
+     * Default constructor.
+     *
+     * @param districts    The districts to simulate.
+     * @param distribution The residual error distribution. Only read, so it can be shared.
+     * @param fast         Whether to use the table-interpolated CDF, which is within {@link StudentT#FAST_MAX_ERROR} of
+     *                     the exact one.
+     */
+    public StudentTKernel(CompiledDistricts districts, StudentT distribution, boolean fast) {
+        this.offsets = districts.getOffsets();
+        this.slopes = districts.getSlopes();
+        this.distribution = distribution;
+        this.fast = fast;
+    }
+
+    @Override
+    public int simulate(double noise, double[] uniforms, int[] outcomes) {
+        int seats = 0;
+        //Check the mode once here rather than once per district.
+        if (fast) {
+            for (int j = 0; j < offsets.length; j++) {
+                int win = uniforms[j] < distribution.fastStandardizedCDF(offsets[j] + slopes[j] * noise) ? 1 : 0;
+                outcomes[j] = win;
+                seats += win;
+            }
+        } else {
+            for (int j = 0; j < offsets.length; j++) {
+                int win = uniforms[j] < distribution.standardizedCDF(offsets[j] + slopes[j] * noise) ? 1 : 0;
+                outcomes[j] = win;
+                seats += win;
+            }
+        }
+        return seats;
+    }
+}
@@ -0,0 +1,45 @@
+package simulation;
+
+import rng.RandomStream;
+import rng.StudentTVariate;
+
+/**
+ * Fat-tailed national noise: each draw from another sampler is divided by an independent chi draw, which turns it into
+ * a Student's t draw scaled to a standard deviation of 1. The other sampler's stratification or quasi-randomness still
+ * applies to the normal part.
+ */
+public class StudentTNoise implements NoiseSampler {
+
+    /**
+     * The sampler for the normal part.
+     */
+    private final NoiseSampler normal;
+
+    /**
+     * The task's random stream, for the chi-squared draws.
+     */
+    private final RandomStream random;
+
+    /**
+     * The degrees of freedom.
+     */
+    private final double dof;
+
+    /**
+     * Default constructor.
+     *
+     * @param normal The sampler for the normal part.
+     * @param random The task's random stream, for the chi-squared draws.
+     * @param dof    The degrees of freedom. Must be above 2.
+     */
+    public StudentTNoise(NoiseSampler normal, RandomStream random, double dof) {
+        this.normal = normal;
+        this.random = random;
+        this.dof = dof;
+    }
+
+    @Override
+    public double next() {
+        return StudentTVariate.scaleStandardNormal(normal.next(), random, dof);
+    }
+}
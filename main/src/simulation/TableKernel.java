@@ -0,0 +1,71 @@
+package simulation;
+
+import util.Normal;
+
+/**
+ * Decides each district by interpolating its win chance from a {@link WinChanceTable}, which turns the CDF into two
+ * array reads per district. Noise draws outside of the table fall back to the exact CDF.
+ */
+public class TableKernel implements WinChanceKernel {
+
+    /**
+     * The shared table of win chances.
+     */
+    private final WinChanceTable table;
+
+    /**
+     * (mean - 0.5) / residual standard deviation for each random district, for draws outside of the table.
+     */
+    private final double[] offsets;
+
+    /**
+     * elasticity / residual standard deviation for each random district, for draws outside of the table.
+     */
+    private final double[] slopes;
+
+    /**
+     * 1 / the standard deviation of the national shift, or 0 if it's 0.
+     */
+    private final double inverseStDv;
+
+    /**
+     * Scratch space for the win chances.
+     */
+    private final double[] winChances;
+
+    /**
+     * Default constructor. Each task needs its own kernel, since the kernel keeps scratch space, but they can all share
+     * one table.
+     *
+     * @param districts The districts to simulate.
+     * @param table     The shared table of win chances for those districts.
+     */
+    public TableKernel(CompiledDistricts districts, WinChanceTable table) {
+        this.table = table;
+        this.offsets = districts.getOffsets();
+        this.slopes = districts.getSlopes();
+        double stDv = districts.getNationalShiftStDv();
+        this.inverseStDv = stDv > 0 ? 1 / stDv : 0;
+        this.winChances = new double[offsets.length];
+    }
+
+    @Override
+    public int simulate(double noise, double[] uniforms, int[] outcomes) {
+        double standardNoise = noise * inverseStDv;
+        if (Math.abs(standardNoise) < WinChanceTable.LIMIT) {
+            table.winChances(standardNoise, winChances);
+        } else {
+            for (int j = 0; j < offsets.length; j++) {
+                winChances[j] = Normal.standardNormalCDF(offsets[j] + slopes[j] * noise);
+            }
+        }
+
+        int seats = 0;
+        for (int j = 0; j < offsets.length; j++) {
+            int win = uniforms[j] < winChances[j] ? 1 : 0;
+            outcomes[j] = win;
+            seats += win;
+        }
+        return seats;
+    }
+}
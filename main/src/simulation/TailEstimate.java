@@ -0,0 +1,163 @@
+package simulation;
+
+/**
+ * The weighted counts from an importance-sampled estimate of the probability that the Democrats' seat count lands in a
+ * region. Each simulation task keeps its own estimate, and the estimates are merged once every task has finished.
+ */
+public class TailEstimate {
+
+    /**
+     * The z-score for a two-sided 95% confidence interval.
+     */
+    private static final double Z_95 = 1.959963984540054;
+
+    /**
+     * The fewest seats in the region.
+     */
+    private final int minSeats;
+
+    /**
+     * The most seats in the region.
+     */
+    private final int maxSeats;
+
+    /**
+     * How many standard deviations the national noise was shifted by.
+     */
+    private final double shift;
+
+    /**
+     * How many elections have been simulated.
+     */
+    private long iterations;
+
+    /**
+     * How many simulated elections landed in the region.
+     */
+    private long hits;
+
+    /**
+     * The sum of the likelihood ratios of the elections that landed in the region.
+     */
+    private double weightSum;
+
+    /**
+     * The sum of the squares of the likelihood ratios of the elections that landed in the region.
+     */
+    private double weightSquareSum;
+
+    /**
+     * Default constructor.
+     *
+     * @param minSeats The fewest seats in the region.
+     * @param maxSeats The most seats in the region.
+     * @param shift    How many standard deviations the national noise is shifted by.
+     */
+    public TailEstimate(int minSeats, int maxSeats, double shift) {
+        this.minSeats = minSeats;
+        this.maxSeats = maxSeats;
+        this.shift = shift;
+    }
+
+    /**
+     * Record the end of a simulated election.
+     *
+     * @param seats  How many seats the Democrats won in that election.
+     * @param weight The likelihood ratio of that election's national noise under the real distribution vs. the shifted
+     *               one.
+     */
+    public void recordIteration(int seats, double weight) {
+        iterations++;
+        if (seats >= minSeats && seats <= maxSeats) {
+            hits++;
+            weightSum += weight;
+            weightSquareSum += weight * weight;
+        }
+    }
+
+    /**
+     * Add the counts from another estimate of the same region with the same shift.
+     *
+     * @param other The estimate to add.
+     */
+    public void merge(TailEstimate other) {
+        iterations += other.iterations;
+        hits += other.hits;
+        weightSum += other.weightSum;
+        weightSquareSum += other.weightSquareSum;
+    }
+
+    /**
+     * @return The fewest seats in the region.
+     */
+    public int getMinSeats() {
+        return minSeats;
+    }
+
+    /**
+     * @return The most seats in the region.
+     */
+    public int getMaxSeats() {
+        return maxSeats;
+    }
+
+    /**
+     * @return How many standard deviations the national noise was shifted by.
+     */
+    public double getShift() {
+        return shift;
+    }
+
+    /**
+     * @return How many elections have been simulated.
+     */
+    public long getIterations() {
+        return iterations;
+    }
+
+    /**
+     * @return How many simulated elections landed in the region, before reweighting.
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return The estimated probability that the Democrats' seat count lands in the region.
+     */
+    public double getProbability() {
+        return weightSum / iterations;
+    }
+
+    /**
+     * @return The standard error of the estimated probability.
+     */
+    public double getStdError() {
+        double probability = getProbability();
+        return Math.sqrt(Math.max(weightSquareSum / iterations - probability * probability, 0) / iterations);
+    }
+
+    /**
+     * @return The lower end of the 95% confidence interval, which can't go below 0.
+     */
+    public double getLowerBound() {
+        return Math.max(getProbability() - Z_95 * getStdError(), 0);
+    }
+
+    /**
+     * @return The upper end of the 95% confidence interval, which can't go above 1.
+     */
+    public double getUpperBound() {
+        return Math.min(getProbability() + Z_95 * getStdError(), 1);
+    }
+
+    /**
+     * @return The variance of this estimate relative to plain Monte Carlo with the same number of iterations. Plain
+     * Monte Carlo would need this many times fewer iterations to be as precise, so smaller is better.
+     */
+    public double getVarianceRatio() {
+        double probability = getProbability();
+        double stdError = getStdError();
+        return stdError * stdError / (probability * (1 - probability) / iterations);
+    }
+}
@@ -0,0 +1,108 @@
+package simulation;
+
+import rng.RandomStream;
+import rng.StudentTVariate;
+import util.StudentT;
+
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Simulates a fixed number of elections with the national noise shifted toward a seat region, weighting each one by
+ * its likelihood ratio, with its own random stream and its own counts.
+ */
+public class TailTask extends RecursiveTask<TailEstimate> {
+
+    /**
+     * Serialization version. Tasks are never serialized, but RecursiveTask is Serializable.
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The districts to simulate.
+     */
+    private final CompiledDistricts districts;
+
+    /**
+     * The kernel that decides each district, used only by this task.
+     */
+    private final WinChanceKernel kernel;
+
+    /**
+     * The region to estimate, with the shift to use.
+     */
+    private final TailEstimate region;
+
+    /**
+     * The number of elections this task simulates.
+     */
+    private final int iterations;
+
+    /**
+     * The random stream used only by this task.
+     */
+    private final RandomStream random;
+
+    /**
+     * The distribution of the national noise if it's Student's t, or null if it's normal.
+     */
+    private final StudentT national;
+
+    /**
+     * Default constructor.
+     *
+     * @param districts  The districts to simulate.
+     * @param kernel     The kernel that decides each district. Must not be shared with any other task.
+     * @param region     An empty estimate with the region and shift to use.
+     * @param iterations The number of elections this task simulates.
+     * @param random     The random stream used only by this task. Must not be shared with any other task.
+     * @param national   The distribution of the national noise if it's Student's t, or null if it's normal.
+     */
+    public TailTask(CompiledDistricts districts, WinChanceKernel kernel, TailEstimate region, int iterations,
+                    RandomStream random, StudentT national) {
+        this.districts = districts;
+        this.kernel = kernel;
+        this.region = region;
+        this.iterations = iterations;
+        this.random = random;
+        this.national = national;
+    }
+
+    /**
+     * Run this task's share of the simulations.
+     *
+     * @return The weighted counts from this task's simulations.
+     */
+    @Override
+    protected TailEstimate compute() {
+        double nationalShiftStDv = districts.getNationalShiftStDv();
+        int fixedSeats = districts.getFixedSeats();
+        double shift = region.getShift();
+        double[] uniforms = new double[districts.getNumActive()];
+        int[] outcomes = new int[districts.getNumActive()];
+        double[] shocks = new double[kernel.getNumShocks()];
+
+        TailEstimate result = new TailEstimate(region.getMinSeats(), region.getMaxSeats(), shift);
+        for (int i = 0; i < iterations; i++) {
+            //Draw from the noise distribution moved by the shift, and weight by how much likelier the draw is
+            // without the shift. A shifted normal proposal would have thinner tails than t noise, so t noise gets a
+            // shifted t proposal.
+            double z;
+            double weight;
+            if (national == null) {
+                z = shift + random.nextGaussian();
+                weight = Math.exp(shift * (shift / 2 - z));
+            } else {
+                z = shift + StudentTVariate.nextStandardized(random, national.getDegreesOfFreedom());
+                weight = national.standardizedDensity(z) / national.standardizedDensity(z - shift);
+            }
+
+            if (shocks.length > 0) {
+                random.fillGaussians(shocks);
+                kernel.setShocks(shocks);
+            }
+            random.fillUniforms(uniforms);
+            result.recordIteration(fixedSeats + kernel.simulate(nationalShiftStDv * z, uniforms, outcomes), weight);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,115 @@
+package simulation;
+
+import java.util.Arrays;
+
+/**
+ * Finds the tipping-point district of a simulated election: the district that delivers the majority-th seat when
+ * every district is ordered from the best Democratic margin to the worst. Uses a bucket selection instead of a full
+ * sort: one pass counts the districts in each margin bucket, a walk down the counts finds the bucket holding the
+ * tipping point, and only the few districts in that bucket get ordered. That takes O(n) time with almost no
+ * mispredicted branches, and allocates nothing after construction. Keeps scratch space, so each task needs its own.
+ */
+public class TippingPoint {
+
+    /**
+     * How many buckets the margins from -50% to 50% are split into.
+     */
+    private static final int BUCKETS = 256;
+
+    /**
+     * The Democratic margin in every district, in the original district order. Fixed districts never change.
+     */
+    private final double[] margins;
+
+    /**
+     * The bucket each district's margin landed in during the last election, in the original district order.
+     */
+    private final int[] buckets;
+
+    /**
+     * How many districts landed in each bucket during the last election.
+     */
+    private final int[] counts;
+
+    /**
+     * The original indices of the districts in the tipping-point bucket, ordered from the best Democratic margin.
+     */
+    private final int[] candidates;
+
+    /**
+     * The original index of each random district, in compiled order.
+     */
+    private final int[] activeIndices;
+
+    /**
+     * The 0-based rank of the tipping-point district, from the best Democratic margin.
+     */
+    private final int rank;
+
+    /**
+     * Default constructor.
+     *
+     * @param districts The districts being simulated.
+     * @param majority  The number of seats needed for a majority. Must be between 1 and the number of districts.
+     * @throws IllegalArgumentException If the majority is out of range.
+     */
+    public TippingPoint(CompiledDistricts districts, int majority) {
+        int n = districts.getNumDistricts();
+        if (majority < 1 || majority > n) {
+            throw new IllegalArgumentException("Majority " + majority + " is out of range for " + n + " districts");
+        }
+        this.margins = new double[n];
+        for (int i = 0; i < n; i++) {
+            margins[i] = districts.getDistricts()[i].getAuspiceDemPercent() - 0.5;
+        }
+        this.buckets = new int[n];
+        this.counts = new int[BUCKETS];
+        this.candidates = new int[n];
+        this.activeIndices = districts.getActiveIndices();
+        this.rank = majority - 1;
+    }
+
+    /**
+     * Find the tipping-point district of one simulated election.
+     *
+     * @param shares The Democratic share of the two-party vote in each random district, in compiled order.
+     * @return The original index of the tipping-point district.
+     */
+    public int find(double[] shares) {
+        for (int j = 0; j < activeIndices.length; j++) {
+            margins[activeIndices[j]] = shares[j] - 0.5;
+        }
+
+        //Count the districts in each bucket. Margins outside -50% to 50% go in the end buckets, and clamping as an int
+        // instead of a double keeps the loop free of branches.
+        Arrays.fill(counts, 0);
+        for (int i = 0; i < margins.length; i++) {
+            int bucket = Math.min(Math.max((int) ((margins[i] + 0.5) * BUCKETS), 0), BUCKETS - 1);
+            buckets[i] = bucket;
+            counts[bucket]++;
+        }
+
+        //Walk down from the best Democratic bucket until the tipping point is in the current one.
+        int bucket = BUCKETS - 1;
+        int above = 0;
+        while (above + counts[bucket] <= rank) {
+            above += counts[bucket];
+            bucket--;
+        }
+
+        //Insertion sort the districts in that bucket, best Democratic margin first. There are only a handful unless
+        // many districts tie, and ties are interchangeable anyway.
+        int size = 0;
+        for (int i = 0; i < margins.length; i++) {
+            if (buckets[i] == bucket) {
+                int position = size++;
+                while (position > 0 && margins[candidates[position - 1]] < margins[i]) {
+                    candidates[position] = candidates[position - 1];
+                    position--;
+                }
+                candidates[position] = i;
+            }
+        }
+        return candidates[rank - above];
+    }
+}
@@ -0,0 +1,173 @@
+package simulation;
+
+/**
+ * The counts from a batch of elections simulated with {@link VoteShareSampler}: the usual seat and district counts,
+ * plus a joint histogram of the Democratic seats and the Democratic share of the national two-party vote. Each
+ * simulation task keeps its own result, and the results are merged once every task has finished.
+ */
+public class VoteShareResult {
+
+    /**
+     * How many bins the national vote share is split into, each 0.1% wide.
+     */
+    public static final int VOTE_BINS = 1000;
+
+    /**
+     * The seat and district counts.
+     */
+    private final SimulationResult result;
+
+    /**
+     * How many times the Democrats won each number of seats with each national vote share, indexed by
+     * seats * {@link #VOTE_BINS} + vote bin.
+     */
+    private final long[] seatVoteHistogram;
+
+    /**
+     * The quantile sketches of each random district's vote share, in compiled order, or null if they aren't kept.
+     */
+    private final QuantileSketches sketches;
+
+    /**
+     * How many times each district was the tipping point, in the original district order, or null if they aren't
+     * counted.
+     */
+    private final long[] tippingPoints;
+
+    /**
+     * Default constructor.
+     *
+     * @param numDistricts  The number of districts being simulated.
+     * @param sketches      Empty quantile sketches of each random district's vote share, in compiled order, or null
+     *                      to not keep them.
+     * @param tippingPoints Whether to count how often each district is the tipping point.
+     */
+    public VoteShareResult(int numDistricts, QuantileSketches sketches, boolean tippingPoints) {
+        this.result = new SimulationResult(numDistricts);
+        this.seatVoteHistogram = new long[(numDistricts + 1) * VOTE_BINS];
+        this.sketches = sketches;
+        this.tippingPoints = tippingPoints ? new long[numDistricts] : null;
+    }
+
+    /**
+     * Record the end of a simulated election.
+     *
+     * @param seats  How many seats the Democrats won in that election.
+     * @param vote   The Democratic share of the national two-party vote in that election.
+     * @param shares The Democratic share of the two-party vote in each random district, in compiled order.
+     */
+    public void recordIteration(int seats, double vote, double[] shares) {
+        result.recordIteration(seats);
+        int bin = (int) Math.min(Math.max(vote * VOTE_BINS, 0), VOTE_BINS - 1);
+        seatVoteHistogram[seats * VOTE_BINS + bin]++;
+        if (sketches != null) {
+            sketches.recordAll(shares);
+        }
+    }
+
+    /**
+     * Record the tipping-point district of a simulated election. Only call this if tipping points are counted.
+     *
+     * @param district The original index of the tipping-point district.
+     */
+    public void recordTippingPoint(int district) {
+        tippingPoints[district]++;
+    }
+
+    /**
+     * Add the counts from another result.
+     *
+     * @param other The result to add.
+     */
+    public void merge(VoteShareResult other) {
+        result.merge(other.result);
+        for (int i = 0; i < seatVoteHistogram.length; i++) {
+            seatVoteHistogram[i] += other.seatVoteHistogram[i];
+        }
+        if (sketches != null) {
+            sketches.merge(other.sketches);
+        }
+        if (tippingPoints != null) {
+            for (int i = 0; i < tippingPoints.length; i++) {
+                tippingPoints[i] += other.tippingPoints[i];
+            }
+        }
+    }
+
+    /**
+     * @return How many times each district was the tipping point, in the original district order, or null if they
+     * aren't counted.
+     */
+    public long[] getTippingPoints() {
+        return tippingPoints;
+    }
+
+    /**
+     * @return The quantile sketches of each random district's vote share, in compiled order, or null if they aren't
+     * kept.
+     */
+    public QuantileSketches getSketches() {
+        return sketches;
+    }
+
+    /**
+     * @return The seat and district counts.
+     */
+    public SimulationResult getSimulationResult() {
+        return result;
+    }
+
+    /**
+     * @param seats The number of Democratic seats.
+     * @param bin   The national vote share bin, from 0 to {@link #VOTE_BINS} - 1.
+     * @return How many simulated elections had that many seats and a national vote share in that bin.
+     */
+    public long getCount(int seats, int bin) {
+        return seatVoteHistogram[seats * VOTE_BINS + bin];
+    }
+
+    /**
+     * @return How many times the national vote share landed in each bin.
+     */
+    public long[] getVoteHistogram() {
+        long[] votes = new long[VOTE_BINS];
+        for (int i = 0; i < seatVoteHistogram.length; i++) {
+            votes[i % VOTE_BINS] += seatVoteHistogram[i];
+        }
+        return votes;
+    }
+
+    /**
+     * @param quantile The quantile, from 0 to 1.
+     * @return The national vote share at that quantile, interpolated linearly within its bin.
+     */
+    public double getVoteQuantile(double quantile) {
+        long[] votes = getVoteHistogram();
+        double target = quantile * result.getIterations();
+        long cumulative = 0;
+        for (int bin = 0; bin < VOTE_BINS; bin++) {
+            if (votes[bin] > 0 && cumulative + votes[bin] >= target) {
+                return (bin + (target - cumulative) / votes[bin]) / VOTE_BINS;
+            }
+            cumulative += votes[bin];
+        }
+        return 1;
+    }
+
+    /**
+     * @param quantile The quantile, from 0 to 1.
+     * @return The smallest number of Democratic seats with at least that much probability at or below it.
+     */
+    public int getSeatQuantile(double quantile) {
+        long[] histogram = result.getHistogram();
+        double target = quantile * result.getIterations();
+        long cumulative = 0;
+        for (int seats = 0; seats < histogram.length; seats++) {
+            cumulative += histogram[seats];
+            if (cumulative >= target && cumulative > 0) {
+                return seats;
+            }
+        }
+        return histogram.length - 1;
+    }
+}
@@ -0,0 +1,219 @@
+package simulation;
+
+import rng.RandomStream;
+import rng.StudentTVariate;
+
+/**
+ * Samples each district's Democratic share of the two-party vote directly, as the AUSPICE mean plus the
+ * elasticity-scaled national noise plus normally distributed residual error, instead of only deciding who wins. That
+ * gives the national popular vote as well as the seats, and needs no normal CDF, just one Gaussian draw per district.
+ * With the hierarchical error model, part of the residual comes from shared regional and state shocks, the same way as
+ * {@link HierarchicalKernel}, and the independent part can be Student's t instead of normal. Keeps scratch space, so
+ * each task needs its own.
+ */
+public class VoteShareSampler {
+
+    /**
+     * The AUSPICE Democratic vote share of each random district.
+     */
+    private final double[] means;
+
+    /**
+     * The elasticity of each random district.
+     */
+    private final double[] elasticities;
+
+    /**
+     * The standard deviation of the independent part of each random district's residual error.
+     */
+    private final double[] idiosyncraticStDvs;
+
+    /**
+     * The residual standard deviation of each random district, which the state shifts are scaled by.
+     */
+    private final double[] residualStDvs;
+
+    /**
+     * The turnout weight of each random district.
+     */
+    private final double[] turnouts;
+
+    /**
+     * The index of each random district's state, or null for independent errors.
+     */
+    private final int[] districtStates;
+
+    /**
+     * The index of each state's region, or null for independent errors.
+     */
+    private final int[] stateRegions;
+
+    /**
+     * How far the regional shock moves a district's vote share, per residual standard deviation.
+     */
+    private final double regionalLoading;
+
+    /**
+     * How far the state shock moves a district's vote share, per residual standard deviation.
+     */
+    private final double stateLoading;
+
+    /**
+     * The shift in each state's vote share from this election's shocks, per residual standard deviation.
+     */
+    private final double[] stateShifts;
+
+    /**
+     * One region shock per region, then one state shock per state, for this election.
+     */
+    private final double[] shocks;
+
+    /**
+     * The residual draws for this election.
+     */
+    private final double[] gaussians;
+
+    /**
+     * The degrees of freedom of the Student's t idiosyncratic errors, or infinity for normal errors.
+     */
+    private final double dof;
+
+    /**
+     * How many seats Democrats win in every election from districts whose outcome is fixed.
+     */
+    private final int fixedSeats;
+
+    /**
+     * The Democratic votes from districts whose vote share is fixed, weighted by turnout.
+     */
+    private final double fixedVotes;
+
+    /**
+     * The total turnout weight of every district.
+     */
+    private final double totalTurnout;
+
+    /**
+     * Default constructor.
+     *
+     * @param districts     The districts to simulate. Should be compiled without pruning, since a pruned district's
+     *                      vote share still varies.
+     * @param turnouts      The turnout weight of each district, in the original district order.
+     * @param groups        Which state and region each district is in, or null for independent residual errors.
+     * @param regionalShare The share of each district's residual variance that comes from the regional shock. Ignored
+     *                      without groups.
+     * @param stateShare    The share of each district's residual variance that comes from the state shock. Ignored
+     *                      without groups.
+     * @param dof           The degrees of freedom of the Student's t idiosyncratic errors, or infinity for normal
+     *                      errors.
+     * @throws IllegalArgumentException If the shares are negative or add up to 1 or more.
+     */
+    public VoteShareSampler(CompiledDistricts districts, double[] turnouts, StateGroups groups, double regionalShare,
+                            double stateShare, double dof) {
+        if (groups == null) {
+            regionalShare = 0;
+            stateShare = 0;
+        } else if (!(regionalShare >= 0 && stateShare >= 0 && regionalShare + stateShare < 1)) {
+            throw new IllegalArgumentException("Regional and state variance shares must be non-negative and add up "
+                    + "to less than 1, got " + regionalShare + " and " + stateShare);
+        }
+        double idiosyncratic = Math.sqrt(1 - regionalShare - stateShare);
+
+        int numActive = districts.getNumActive();
+        int[] activeIndices = districts.getActiveIndices();
+        this.means = districts.getMeans();
+        this.elasticities = districts.getElasticities();
+        this.residualStDvs = districts.getResidualStDvs();
+        this.idiosyncraticStDvs = new double[numActive];
+        this.turnouts = new double[numActive];
+        for (int j = 0; j < numActive; j++) {
+            idiosyncraticStDvs[j] = residualStDvs[j] * idiosyncratic;
+            this.turnouts[j] = turnouts[activeIndices[j]];
+        }
+
+        //Fixed districts always vote the same way.
+        double votes = 0;
+        double total = 0;
+        for (int i = 0; i < districts.getNumDistricts(); i++) {
+            total += turnouts[i];
+            if (districts.isFixed(i)) {
+                votes += turnouts[i] * districts.getDistricts()[i].getAuspiceDemPercent();
+            }
+        }
+        this.fixedVotes = votes;
+        this.totalTurnout = total;
+        this.fixedSeats = districts.getFixedSeats();
+
+        if (groups == null) {
+            this.districtStates = null;
+            this.stateRegions = null;
+            this.stateShifts = null;
+            this.shocks = new double[0];
+        } else {
+            this.districtStates = new int[numActive];
+            for (int j = 0; j < numActive; j++) {
+                districtStates[j] = groups.getState(activeIndices[j]);
+            }
+            this.stateRegions = new int[groups.getNumStates()];
+            for (int s = 0; s < stateRegions.length; s++) {
+                stateRegions[s] = groups.getRegion(s);
+            }
+            this.stateShifts = new double[groups.getNumStates()];
+            this.shocks = new double[groups.getNumRegions() + groups.getNumStates()];
+        }
+        this.regionalLoading = Math.sqrt(regionalShare);
+        this.stateLoading = Math.sqrt(stateShare);
+        this.gaussians = new double[numActive];
+        this.dof = dof;
+    }
+
+    /**
+     * Sample every random district's vote share for one election.
+     *
+     * @param noise  The national noise for this election, in vote percent, where 0.01 is 1%.
+     * @param random The task's random stream.
+     * @param shares Filled with the Democratic share of the two-party vote in each random district, in compiled order.
+     * @return How many seats the Democrats won, including the fixed ones.
+     */
+    public int sample(double noise, RandomStream random, double[] shares) {
+        random.fillGaussians(gaussians);
+        if (dof < Double.POSITIVE_INFINITY) {
+            for (int j = 0; j < gaussians.length; j++) {
+                gaussians[j] = StudentTVariate.scaleStandardNormal(gaussians[j], random, dof);
+            }
+        }
+        int seats = fixedSeats;
+        if (districtStates == null) {
+            for (int j = 0; j < means.length; j++) {
+                double share = means[j] + elasticities[j] * noise + idiosyncraticStDvs[j] * gaussians[j];
+                shares[j] = share;
+                seats += share > 0.5 ? 1 : 0;
+            }
+        } else {
+            random.fillGaussians(shocks);
+            int numRegions = shocks.length - stateShifts.length;
+            for (int s = 0; s < stateShifts.length; s++) {
+                stateShifts[s] = regionalLoading * shocks[stateRegions[s]] + stateLoading * shocks[numRegions + s];
+            }
+            for (int j = 0; j < means.length; j++) {
+                double share = means[j] + elasticities[j] * noise + residualStDvs[j] * stateShifts[districtStates[j]]
+                        + idiosyncraticStDvs[j] * gaussians[j];
+                shares[j] = share;
+                seats += share > 0.5 ? 1 : 0;
+            }
+        }
+        return seats;
+    }
+
+    /**
+     * @param shares The Democratic share of the two-party vote in each random district, in compiled order.
+     * @return The Democratic share of the national two-party vote, weighting every district by its turnout.
+     */
+    public double getNationalVote(double[] shares) {
+        double votes = fixedVotes;
+        for (int j = 0; j < shares.length; j++) {
+            votes += turnouts[j] * shares[j];
+        }
+        return votes / totalTurnout;
+    }
+}
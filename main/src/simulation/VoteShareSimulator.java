@@ -0,0 +1,170 @@
+package simulation;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Splits vote share simulations across a fork/join pool, in batches and tasks the same way as
+ * {@link ParallelSimulator}, so a given seed, thread count, and batch size always give the same results.
+ */
+public class VoteShareSimulator {
+
+    /**
+     * How many AUSPICE standard deviations each side of the mean the vote share sketches cover.
+     */
+    private static final double SKETCH_LIMIT = 8;
+
+    /**
+     * How many bins each vote share sketch has.
+     */
+    private static final int SKETCH_BINS = 512;
+
+    /**
+     * The districts to simulate.
+     */
+    private final CompiledDistricts districts;
+
+    /**
+     * The number of simulations, seed, thread count, generator, and error model to use.
+     */
+    private final SimulationSettings settings;
+
+    /**
+     * The turnout weight of each district, in the original district order.
+     */
+    private final double[] turnouts;
+
+    /**
+     * Which state and region each district is in, or null for independent residual errors.
+     */
+    private final StateGroups groups;
+
+    /**
+     * The bottom of each random district's vote share sketch range, or null if sketches aren't kept.
+     */
+    private final double[] sketchLows;
+
+    /**
+     * The top of each random district's vote share sketch range, or null if sketches aren't kept.
+     */
+    private final double[] sketchHighs;
+
+    /**
+     * Default constructor.
+     *
+     * @param districts The districts to simulate, compiled without pruning.
+     * @param turnouts  The turnout weight of each district, in the original district order.
+     * @param settings  The number of simulations, seed, thread count, generator, noise sampling, and error model to
+     *                  use. The thread count must be at least 1.
+     * @throws IllegalArgumentException If there are no threads, the turnouts don't match the districts, or a district
+     *                                  isn't in a known state for the hierarchical error model.
+     */
+    public VoteShareSimulator(CompiledDistricts districts, double[] turnouts, SimulationSettings settings) {
+        if (settings.getThreads() < 1) {
+            throw new IllegalArgumentException("Need at least one thread, got " + settings.getThreads());
+        }
+        if (turnouts.length != districts.getNumDistricts()) {
+            throw new IllegalArgumentException("Got " + turnouts.length + " turnouts for "
+                    + districts.getNumDistricts() + " districts");
+        }
+        this.districts = districts;
+        this.turnouts = turnouts;
+        this.settings = settings;
+        this.groups = settings.getErrorModel() == SimulationSettings.ErrorModel.HIERARCHICAL
+                ? new StateGroups(districts.getDistricts()) : null;
+
+        //Each district's vote share is sketched over its mean plus or minus 8 AUSPICE standard deviations.
+        if (settings.isQuantileSketches()) {
+            int numActive = districts.getNumActive();
+            this.sketchLows = new double[numActive];
+            this.sketchHighs = new double[numActive];
+            for (int j = 0; j < numActive; j++) {
+                double stDv = districts.getDistricts()[districts.getActiveIndices()[j]].getAuspiceStDv();
+                sketchLows[j] = districts.getMeans()[j] - SKETCH_LIMIT * stDv;
+                sketchHighs[j] = districts.getMeans()[j] + SKETCH_LIMIT * stDv;
+            }
+        } else {
+            this.sketchLows = null;
+            this.sketchHighs = null;
+        }
+    }
+
+    /**
+     * Run the simulations in batches, with a {@link BatchSchedule}, until the iteration limit is reached, every
+     * standard error target that is set is met, or the time budget runs out. If the settings name a raw draw file,
+     * every simulation's national noise and district vote shares are written there too.
+     *
+     * @return The merged counts from every task in every batch.
+     * @throws IOException If the raw draw file can't be written.
+     */
+    public VoteShareResult run() throws IOException {
+        VoteShareResult result = newResult();
+        RawDrawStore store = settings.getRawDrawFile() == null ? null
+                : new RawDrawStore(Paths.get(settings.getRawDrawFile()), districts.getDistricts(),
+                settings.getIterations());
+
+        ForkJoinPool pool = new ForkJoinPool(settings.getThreads());
+        try {
+            BatchSchedule schedule = new BatchSchedule(settings, settings.getMajority());
+            while (schedule.hasNext()) {
+                result.merge(runBatch(pool, schedule.getBatch(), schedule.getBatchIterations(), store,
+                        result.getSimulationResult().getIterations()));
+                schedule.next(result.getSimulationResult());
+            }
+            return result;
+        } finally {
+            pool.shutdown();
+            //Close the store even if a batch failed, so the header counts the rows of every batch that finished.
+            if (store != null) {
+                store.close(result.getSimulationResult().getIterations());
+            }
+        }
+    }
+
+    /**
+     * Run one batch of simulations across the pool.
+     *
+     * @param pool       The pool to run the tasks on.
+     * @param batch      The index of this batch, which picks the streams its tasks use.
+     * @param iterations The number of generic ballots to simulate in this batch.
+     * @param store      The raw draw file to write the draws to, or null to not write them.
+     * @param done       How many elections earlier batches simulated, which is the row this batch starts at.
+     * @return The merged counts from every task in the batch.
+     */
+    private VoteShareResult runBatch(ForkJoinPool pool, int batch, int iterations, RawDrawStore store, long done) {
+        int threads = settings.getThreads();
+
+        List<VoteShareTask> tasks = new ArrayList<>(threads);
+        long first = done;
+        for (int i = 0; i < threads; i++) {
+            int taskIterations = iterations / threads + (i < iterations % threads ? 1 : 0);
+            VoteShareSampler sampler = new VoteShareSampler(districts, turnouts, groups,
+                    settings.getRegionalVarianceShare(), settings.getStateVarianceShare(),
+                    settings.getDistrictDegreesOfFreedom());
+            tasks.add(new VoteShareTask(districts, settings, sampler, taskIterations,
+                    settings.getRngType().create(settings.getSeed(), (long) batch * threads + i), newResult(),
+                    store == null ? null : store.openBuffer(districts, first, taskIterations)));
+            first += taskIterations;
+        }
+
+        for (VoteShareTask task : tasks) {
+            pool.execute(task);
+        }
+        VoteShareResult result = newResult();
+        for (VoteShareTask task : tasks) {
+            result.merge(task.join());
+        }
+        return result;
+    }
+
+    /**
+     * @return An empty result, with empty sketches and tipping-point counts if they're kept.
+     */
+    private VoteShareResult newResult() {
+        return new VoteShareResult(districts.getNumDistricts(), sketchLows == null ? null
+                : new QuantileSketches(sketchLows, sketchHighs, SKETCH_BINS), settings.isTippingPoints());
+    }
+}
@@ -0,0 +1,123 @@
+package simulation;
+
+import rng.RandomStream;
+
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Simulates a fixed number of elections by sampling vote shares, with its own random stream and its own counts.
+ */
+public class VoteShareTask extends RecursiveTask<VoteShareResult> {
+
+    /**
+     * Serialization version. Tasks are never serialized, but RecursiveTask is Serializable.
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The districts to simulate.
+     */
+    private final CompiledDistricts districts;
+
+    /**
+     * The noise sampling strategy and majority to use.
+     */
+    private final SimulationSettings settings;
+
+    /**
+     * The vote share sampler, used only by this task.
+     */
+    private final VoteShareSampler sampler;
+
+    /**
+     * The number of elections this task simulates.
+     */
+    private final int iterations;
+
+    /**
+     * The random stream used only by this task.
+     */
+    private final RandomStream random;
+
+    /**
+     * The result this task records into.
+     */
+    private final VoteShareResult result;
+
+    /**
+     * Where this task writes each election's raw draws, or null if they aren't written.
+     */
+    private final RawDrawBuffer rawDraws;
+
+    /**
+     * Default constructor.
+     *
+     * @param districts  The districts to simulate.
+     * @param settings   The noise sampling strategy and majority to use.
+     * @param sampler    The vote share sampler. Must not be shared with any other task.
+     * @param iterations The number of elections this task simulates.
+     * @param random     The random stream used only by this task. Must not be shared with any other task.
+     * @param result     An empty result to record into, with empty sketches if they're kept. Must not be shared with
+     *                   any other task.
+     * @param rawDraws   Where to write each election's national noise and district vote shares, or null to not write
+     *                   them. Must not be shared with any other task.
+     */
+    public VoteShareTask(CompiledDistricts districts, SimulationSettings settings, VoteShareSampler sampler,
+                         int iterations, RandomStream random, VoteShareResult result, RawDrawBuffer rawDraws) {
+        this.districts = districts;
+        this.settings = settings;
+        this.sampler = sampler;
+        this.iterations = iterations;
+        this.random = random;
+        this.result = result;
+        this.rawDraws = rawDraws;
+    }
+
+    /**
+     * Run this task's share of the simulations.
+     *
+     * @return The counts from this task's simulations, recorded as one replicate.
+     */
+    @Override
+    protected VoteShareResult compute() {
+        NoiseSampler noiseSampler = settings.createNoiseSampler(random, iterations);
+        double nationalShiftStDv = districts.getNationalShiftStDv();
+        int numActive = districts.getNumActive();
+        double[] shares = new double[numActive];
+        long[] activeWins = new long[numActive];
+        TippingPoint tippingPoint = result.getTippingPoints() == null ? null
+                : new TippingPoint(districts, settings.getMajority());
+
+        for (int i = 0; i < iterations; i++) {
+            double noise = nationalShiftStDv * noiseSampler.next();
+            int seats = sampler.sample(noise, random, shares);
+            for (int j = 0; j < numActive; j++) {
+                activeWins[j] += shares[j] > 0.5 ? 1 : 0;
+            }
+            result.recordIteration(seats, sampler.getNationalVote(shares), shares);
+            if (tippingPoint != null) {
+                result.recordTippingPoint(tippingPoint.find(shares));
+            }
+            if (rawDraws != null) {
+                rawDraws.recordIteration(noise, shares);
+            }
+        }
+        if (rawDraws != null) {
+            rawDraws.flush();
+        }
+
+        //Move the wins back into the original district order.
+        SimulationResult counts = result.getSimulationResult();
+        int[] activeIndices = districts.getActiveIndices();
+        for (int j = 0; j < numActive; j++) {
+            counts.recordWins(activeIndices[j], activeWins[j]);
+        }
+        for (int i = 0; i < districts.getNumDistricts(); i++) {
+            if (districts.isFixed(i) && districts.isFixedWin(i)) {
+                counts.recordWins(i, iterations);
+            }
+        }
+        counts.recordReplicate(settings.getMajority());
+        return result;
+    }
+}
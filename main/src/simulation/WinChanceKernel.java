@@ -0,0 +1,34 @@
+package simulation;
+
+/**
+ * Decides every random district for one simulated election, given the national noise and one uniform draw per
+ * district.
+ */
+public interface WinChanceKernel {
+
+    /**
+     * Simulate every random district for one election.
+     *
+     * @param noise    The national noise for this election, in vote percent, where 0.01 is 1%.
+     * @param uniforms One uniform draw from [0, 1) for each random district, in compiled order.
+     * @param outcomes Filled with 1 for each random district the Democrats win and 0 otherwise, in compiled order.
+     * @return How many of the random districts the Democrats won.
+     */
+    int simulate(double noise, double[] uniforms, int[] outcomes);
+
+    /**
+     * @return How many standard normal shocks, shared by many districts, this kernel needs for each election on top of
+     * the national noise. 0 for kernels where every district's residual error is independent.
+     */
+    default int getNumShocks() {
+        return 0;
+    }
+
+    /**
+     * Set the shared shocks for the next election. Only called if {@link #getNumShocks()} isn't 0.
+     *
+     * @param shocks {@link #getNumShocks()} standard normal draws.
+     */
+    default void setShocks(double[] shocks) {
+    }
+}
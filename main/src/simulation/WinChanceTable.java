@@ -0,0 +1,234 @@
+package simulation;
+
+import util.Normal;
+
+/**
+ * Every random district's win chance, tabulated over a grid of national noise values from -LIMIT to LIMIT standard
+ * deviations, so the simulations can interpolate instead of evaluating the normal CDF. The table is built and checked
+ * once per run and shared by every task.
+ * <p>
+ * The grid is stored noise-major: all of the districts for one grid point sit next to each other, so interpolating
+ * every district for one noise draw reads two contiguous rows.
+ */
+public class WinChanceTable {
+
+    /**
+     * How many standard deviations of national noise the table covers in each direction. Draws outside of that fall
+     * back to the exact CDF.
+     */
+    public static final double LIMIT = 6;
+
+    /**
+     * The coarsest grid to try, in points per standard deviation of national noise.
+     */
+    private static final int MIN_POINTS_PER_STDV = 16;
+
+    /**
+     * The finest grid to try, in points per standard deviation of national noise.
+     */
+    private static final int MAX_POINTS_PER_STDV = 4096;
+
+    /**
+     * Whether to use cubic Hermite interpolation instead of linear.
+     */
+    private final boolean cubic;
+
+    /**
+     * How many grid points there are per standard deviation of national noise.
+     */
+    private final int pointsPerStDv;
+
+    /**
+     * The number of grid points.
+     */
+    private final int points;
+
+    /**
+     * The number of random districts, which is the length of each row.
+     */
+    private final int numActive;
+
+    /**
+     * The win chance of each random district at each grid point, noise-major.
+     */
+    private final double[] values;
+
+    /**
+     * The derivative of each random district's win chance with respect to the standardized noise at each grid point,
+     * noise-major. Only filled in for cubic interpolation.
+     */
+    private final double[] derivatives;
+
+    /**
+     * The largest difference between the interpolated and exact win chance found when the table was checked.
+     */
+    private final double maxError;
+
+    /**
+     * Build the table, doubling the grid resolution until the interpolation error is within the tolerance. The error is
+     * checked against the exact CDF at a quarter, half, and three quarters of the way through every grid interval for
+     * every district.
+     *
+     * @param districts The districts to simulate.
+     * @param cubic     Whether to use cubic Hermite interpolation instead of linear.
+     * @param tolerance The largest acceptable difference between the interpolated and exact win chance.
+     * @throws IllegalArgumentException If even the finest grid isn't within the tolerance.
+     */
+    public WinChanceTable(CompiledDistricts districts, boolean cubic, double tolerance) {
+        this.cubic = cubic;
+        this.numActive = districts.getNumActive();
+
+        int resolution = MIN_POINTS_PER_STDV;
+        while (true) {
+            double[][] grid = build(districts, resolution);
+            double error = check(districts, resolution, grid[0], grid[1]);
+            if (error <= tolerance) {
+                this.pointsPerStDv = resolution;
+                this.points = (int) (2 * LIMIT * resolution) + 1;
+                this.values = grid[0];
+                this.derivatives = grid[1];
+                this.maxError = error;
+                return;
+            }
+            if (resolution >= MAX_POINTS_PER_STDV) {
+                throw new IllegalArgumentException("Win chance table can't get within " + tolerance + " of the exact "
+                        + "CDF: the error is still " + error + " at " + resolution + " points per standard deviation");
+            }
+            resolution *= 2;
+        }
+    }
+
+    /**
+     * Tabulate the win chances, and their derivatives for cubic interpolation, at a given resolution.
+     *
+     * @param districts  The districts to simulate.
+     * @param resolution How many grid points per standard deviation of national noise.
+     * @return The values, then the derivatives, noise-major.
+     */
+    private double[][] build(CompiledDistricts districts, int resolution) {
+        double[] offsets = districts.getOffsets();
+        double[] slopes = districts.getSlopes();
+        double nationalShiftStDv = districts.getNationalShiftStDv();
+        int gridPoints = (int) (2 * LIMIT * resolution) + 1;
+
+        double[] values = new double[gridPoints * numActive];
+        double[] derivatives = new double[cubic ? gridPoints * numActive : 0];
+        for (int i = 0; i < gridPoints; i++) {
+            double noise = nationalShiftStDv * (-LIMIT + (double) i / resolution);
+            for (int j = 0; j < numActive; j++) {
+                double z = offsets[j] + slopes[j] * noise;
+                values[i * numActive + j] = Normal.standardNormalCDF(z);
+                if (cubic) {
+                    //d/dv Phi(offset + slope * stDv * v) = slope * stDv * phi(z)
+                    derivatives[i * numActive + j] = slopes[j] * nationalShiftStDv * Math.exp(-0.5 * z * z)
+                            / Math.sqrt(2 * Math.PI);
+                }
+            }
+        }
+        return new double[][]{values, derivatives};
+    }
+
+    /**
+     * Find the largest interpolation error in a candidate table.
+     *
+     * @param districts   The districts to simulate.
+     * @param resolution  How many grid points per standard deviation of national noise.
+     * @param values      The candidate table's values.
+     * @param derivatives The candidate table's derivatives.
+     * @return The largest difference between the interpolated and exact win chance.
+     */
+    private double check(CompiledDistricts districts, int resolution, double[] values, double[] derivatives) {
+        double[] offsets = districts.getOffsets();
+        double[] slopes = districts.getSlopes();
+        double nationalShiftStDv = districts.getNationalShiftStDv();
+        int gridPoints = (int) (2 * LIMIT * resolution) + 1;
+
+        double maxError = 0;
+        for (int i = 0; i < gridPoints - 1; i++) {
+            for (double t = 0.25; t < 1; t += 0.25) {
+                double noise = nationalShiftStDv * (-LIMIT + (i + t) / resolution);
+                for (int j = 0; j < numActive; j++) {
+                    double exact = Normal.standardNormalCDF(offsets[j] + slopes[j] * noise);
+                    double interpolated = interpolate(values, derivatives, i, t, 1. / resolution, j);
+                    maxError = Math.max(maxError, Math.abs(interpolated - exact));
+                }
+            }
+        }
+        return maxError;
+    }
+
+    /**
+     * Interpolate one district's win chance inside one grid interval.
+     *
+     * @param values      The table's values.
+     * @param derivatives The table's derivatives.
+     * @param i           The grid point at the start of the interval.
+     * @param t           How far through the interval, from 0 to 1.
+     * @param h           The width of the interval, in standard deviations of national noise.
+     * @param j           The random district.
+     * @return The interpolated win chance.
+     */
+    private double interpolate(double[] values, double[] derivatives, int i, double t, double h, int j) {
+        int lower = i * numActive + j;
+        int upper = lower + numActive;
+        if (!cubic) {
+            return values[lower] + t * (values[upper] - values[lower]);
+        }
+        double t2 = t * t;
+        double t3 = t2 * t;
+        return (2 * t3 - 3 * t2 + 1) * values[lower] + (t3 - 2 * t2 + t) * h * derivatives[lower]
+                + (3 * t2 - 2 * t3) * values[upper] + (t3 - t2) * h * derivatives[upper];
+    }
+
+    /**
+     * Interpolate every random district's win chance for one national noise draw.
+     *
+     * @param standardNoise The national noise, in standard deviations. Must be strictly between -LIMIT and LIMIT.
+     * @param out           Filled with each random district's win chance, in compiled order.
+     */
+    public void winChances(double standardNoise, double[] out) {
+        double position = (standardNoise + LIMIT) * pointsPerStDv;
+        int i = (int) position;
+        double t = position - i;
+        int lower = i * numActive;
+        int upper = lower + numActive;
+        if (cubic) {
+            double t2 = t * t;
+            double t3 = t2 * t;
+            double h = 1. / pointsPerStDv;
+            double lowerValue = 2 * t3 - 3 * t2 + 1;
+            double lowerSlope = (t3 - 2 * t2 + t) * h;
+            double upperValue = 3 * t2 - 2 * t3;
+            double upperSlope = (t3 - t2) * h;
+            for (int j = 0; j < numActive; j++) {
+                out[j] = lowerValue * values[lower + j] + lowerSlope * derivatives[lower + j]
+                        + upperValue * values[upper + j] + upperSlope * derivatives[upper + j];
+            }
+        } else {
+            for (int j = 0; j < numActive; j++) {
+                out[j] = values[lower + j] + t * (values[upper + j] - values[lower + j]);
+            }
+        }
+    }
+
+    /**
+     * @return How many grid points there are per standard deviation of national noise.
+     */
+    public int getPointsPerStDv() {
+        return pointsPerStDv;
+    }
+
+    /**
+     * @return The number of grid points.
+     */
+    public int getPoints() {
+        return points;
+    }
+
+    /**
+     * @return The largest difference between the interpolated and exact win chance found when the table was checked.
+     */
+    public double getMaxError() {
+        return maxError;
+    }
+}
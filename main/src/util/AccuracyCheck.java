@@ -0,0 +1,82 @@
+package util;
+
+/**
+ * Checks the documented error bounds of the fast, table-interpolated CDFs against the exact ones, by sweeping a fine
+ * grid well past both ends of each table. Run it after touching a table's size, range, or interpolation, and update
+ * the bound if it fails.
+ */
+public class AccuracyCheck {
+
+    /**
+     * Sweep every fast CDF and print the largest difference from the exact one.
+     *
+     * @param args Ignored.
+     */
+    public static void main(String[] args) {
+        boolean passed = checkNormal();
+        for (double dof : new double[]{2.1, 2.5, 3, 4, 5, 10, 30, 100, 1000}) {
+            passed &= checkStudentT(dof);
+        }
+        if (!passed) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Sweep {@link Normal#fastStandardNormalCDF(double)} against {@link Normal#standardNormalCDF(double)} on a grid of
+     * 1e-5 steps from -40 to 40.
+     *
+     * @return Whether the largest difference is within {@link Normal#FAST_MAX_ERROR}.
+     */
+    public static boolean checkNormal() {
+        double worst = 0;
+        double worstZ = 0;
+        for (long i = -4000000; i <= 4000000; i++) {
+            double z = i * 1e-5;
+            double error = Math.abs(Normal.fastStandardNormalCDF(z) - Normal.standardNormalCDF(z));
+            if (error > worst) {
+                worst = error;
+                worstZ = z;
+            }
+        }
+        return report("Normal", worst, worstZ, Normal.FAST_MAX_ERROR);
+    }
+
+    /**
+     * Sweep {@link StudentT#fastStandardizedCDF(double)} against {@link StudentT#standardizedCDF(double)} on a grid of
+     * 1e-4 steps from -100 to 100, which crosses from the table into the exact far tails.
+     *
+     * @param dof The degrees of freedom.
+     * @return Whether the largest difference is within {@link StudentT#FAST_MAX_ERROR}.
+     */
+    public static boolean checkStudentT(double dof) {
+        StudentT distribution = new StudentT(dof);
+        double worst = 0;
+        double worstZ = 0;
+        for (long i = -1000000; i <= 1000000; i++) {
+            double z = i * 1e-4;
+            double error = Math.abs(distribution.fastStandardizedCDF(z) - distribution.standardizedCDF(z));
+            if (error > worst) {
+                worst = error;
+                worstZ = z;
+            }
+        }
+        return report("Student's t, " + dof + " dof", worst, worstZ, StudentT.FAST_MAX_ERROR);
+    }
+
+    /**
+     * Print the result of one sweep.
+     *
+     * @param name  What was swept.
+     * @param worst The largest difference found.
+     * @param where Where the largest difference was.
+     * @param bound The documented bound.
+     * @return Whether the largest difference is within the bound.
+     */
+    private static boolean report(String name, double worst, double where, double bound) {
+        boolean passed = worst <= bound;
+        System.out.println(name + ": largest fast CDF error " + worst + " at " + where + ", bound " + bound
+                + (passed ? ", ok" : ", FAILED"));
+        return passed;
+    }
+}
@@ -0,0 +1,98 @@
+package util;
+
+import java.util.SplittableRandom;
+
+/**
+ * Times the exact and fast normal and Student's t CDFs on the same z-scores, to show what t errors cost compared to
+ * the Gaussian path. Each CDF is warmed up first, then timed over several passes of a million calls.
+ */
+public class CdfBenchmark {
+
+    /**
+     * How many z-scores each pass evaluates.
+     */
+    private static final int CALLS = 1000000;
+
+    /**
+     * How many untimed passes to run first, so the JIT has compiled everything.
+     */
+    private static final int WARMUP_PASSES = 5;
+
+    /**
+     * How many passes to time.
+     */
+    private static final int TIMED_PASSES = 10;
+
+    /**
+     * A CDF to time.
+     */
+    private interface Cdf {
+
+        /**
+         * @param z The value to evaluate at, in standard deviations.
+         * @return The CDF at z.
+         */
+        double at(double z);
+    }
+
+    /**
+     * Time every CDF and print the nanoseconds per call, and each one relative to the exact normal CDF.
+     *
+     * @param args Optionally the Student's t degrees of freedom, 5 by default.
+     */
+    public static void main(String[] args) {
+        double dof = args.length > 0 ? Double.parseDouble(args[0]) : 5;
+        StudentT t = new StudentT(dof);
+
+        //Spread like the z-scores the simulations actually see: mostly within a few standard deviations.
+        SplittableRandom random = new SplittableRandom(42);
+        double[] z = new double[CALLS];
+        for (int i = 0; i < CALLS; i++) {
+            z[i] = 1.5 * random.nextGaussian();
+        }
+
+        double normal = time("Normal exact", Normal::standardNormalCDF, z, 0);
+        time("Normal fast", Normal::fastStandardNormalCDF, z, normal);
+        time("Student's t exact, " + dof + " dof", t::standardizedCDF, z, normal);
+        time("Student's t fast, " + dof + " dof", t::fastStandardizedCDF, z, normal);
+    }
+
+    /**
+     * Warm up and time one CDF, and print the result.
+     *
+     * @param name     What's being timed.
+     * @param cdf      The CDF.
+     * @param z        The z-scores to evaluate it at.
+     * @param baseline The nanoseconds per call to compare against, or 0 to not compare.
+     * @return The nanoseconds per call.
+     */
+    private static double time(String name, Cdf cdf, double[] z, double baseline) {
+        double sink = 0;
+        for (int pass = 0; pass < WARMUP_PASSES; pass++) {
+            sink += run(cdf, z);
+        }
+        long start = System.nanoTime();
+        for (int pass = 0; pass < TIMED_PASSES; pass++) {
+            sink += run(cdf, z);
+        }
+        double perCall = (double) (System.nanoTime() - start) / TIMED_PASSES / z.length;
+        //Print the sum too, so the JIT can't drop the calls.
+        System.out.println(name + ": " + Math.round(perCall * 10) / 10. + " ns per call"
+                + (baseline > 0 ? ", " + Math.round(perCall / baseline * 100) / 100. + "x the exact normal" : "")
+                + " (checksum " + sink + ")");
+        return perCall;
+    }
+
+    /**
+     * @param cdf The CDF.
+     * @param z   The z-scores to evaluate it at.
+     * @return The sum of the CDF at every z-score.
+     */
+    private static double run(Cdf cdf, double[] z) {
+        double sum = 0;
+        for (double value : z) {
+            sum += cdf.at(value);
+        }
+        return sum;
+    }
+}
@@ -213,4 +213,31 @@ public class DataReader {
         return districtToVoteMap;
     }
 
+    /**
+     * Read in races that were forecast elsewhere, like Senate or governor races, from a csv file with a header line
+     * and one race per line: the race name, the Democratic share of the two-party vote from 0 to 1, its standard
+     * deviation, and the race's elasticity. Race names should start with the state's postal code, e.g. AZ-S.
+     *
+     * @param file The name of the file containing the races.
+     * @return A district for each race, with the AUSPICE vote share and standard deviation set to the forecast.
+     * @throws IOException If the file is missing or improperly formatted.
+     */
+    public static District[] readRaces(String file) throws IOException {
+        String line;
+        BufferedReader fileReader = new BufferedReader(new FileReader(file));
+        //Clear header
+        fileReader.readLine();
+        List<District> races = new ArrayList<>();
+        while ((line = fileReader.readLine()) != null) {
+            String[] splitLine = line.split(",");
+            District race = new District(splitLine[0], new Poll[0], false, false, 0, null, 0, null,
+                    Double.parseDouble(splitLine[3]), null, true, true, 0, 0, 0, 0);
+            race.setAuspiceDemPercent(Double.parseDouble(splitLine[1]));
+            race.setAuspiceStDv(Double.parseDouble(splitLine[2]));
+            races.add(race);
+        }
+        fileReader.close();
+
+        return races.toArray(new District[0]);
+    }
 }
@@ -0,0 +1,127 @@
+package simulation;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorSpecies;
+import util.Normal;
+
+/**
+ * {@link BatchKernel} with explicit SIMD lanes from the incubating Vector API, so several districts are decided per
+ * instruction. The table lookups are gathers, and the arithmetic is done in the same order as
+ * {@link BatchKernel#standardNormalCDF(double, double[], double[])}, so both give the same results for the same seed.
+ * <p>
+ * This file is in its own source root because it needs the jdk.incubator.vector module, which isn't resolved by
+ * default. Compile it after main/src with {@code --add-modules jdk.incubator.vector}, and run with the same flag to use
+ * it. {@link SimulationSettings.KernelType#BATCH} only loads it, by reflection, when the module is there, and falls
+ * back to {@link BatchKernel} otherwise.
+ */
+public class VectorKernel implements WinChanceKernel {
+
+    /**
+     * The widest double vectors this machine supports.
+     */
+    private static final VectorSpecies<Double> DOUBLES = DoubleVector.SPECIES_PREFERRED;
+
+    /**
+     * (mean - 0.5) / residual standard deviation for each random district.
+     */
+    private final double[] offsets;
+
+    /**
+     * elasticity / residual standard deviation for each random district.
+     */
+    private final double[] slopes;
+
+    /**
+     * The standard normal CDF at each table point.
+     */
+    private final double[] cdf;
+
+    /**
+     * The standard normal PDF at each table point.
+     */
+    private final double[] pdf;
+
+    /**
+     * Scratch space for the table position of each lane.
+     */
+    private final double[] positions;
+
+    /**
+     * Scratch space for the table index of each lane, since gathers take their indices from an array.
+     */
+    private final int[] indices;
+
+    /**
+     * Scratch space for the table index of each lane, as a double.
+     */
+    private final double[] floors;
+
+    /**
+     * Default constructor. Each task needs its own kernel, since the kernel keeps scratch space.
+     *
+     * @param districts The districts to simulate.
+     */
+    public VectorKernel(CompiledDistricts districts) {
+        this.offsets = districts.getOffsets();
+        this.slopes = districts.getSlopes();
+        this.cdf = Normal.getFastCDFTable();
+        this.pdf = Normal.getFastPDFTable();
+        this.positions = new double[DOUBLES.length()];
+        this.indices = new int[DOUBLES.length()];
+        this.floors = new double[DOUBLES.length()];
+    }
+
+    @Override
+    public int simulate(double noise, double[] uniforms, int[] outcomes) {
+        int n = offsets.length;
+        int bound = DOUBLES.loopBound(n);
+        double last = cdf.length - 1;
+        double h = 1. / Normal.FAST_STEPS_PER_UNIT;
+        int seats = 0;
+        int j = 0;
+        for (; j < bound; j += DOUBLES.length()) {
+            //Shifted mean and residual scaling, as a z-score, then as a position in the table clamped to its ends.
+            DoubleVector z = DoubleVector.fromArray(DOUBLES, offsets, j)
+                    .add(DoubleVector.fromArray(DOUBLES, slopes, j).mul(noise));
+            DoubleVector position = z.add(Normal.FAST_LIMIT).mul(Normal.FAST_STEPS_PER_UNIT).max(0).min(last);
+            //Lane conversions between doubles and ints aren't intrinsified in JDK 17 and are several times slower than
+            // going through scratch arrays.
+            position.intoArray(positions, 0);
+            for (int k = 0; k < positions.length; k++) {
+                int i = Math.min((int) positions[k], cdf.length - 2);
+                indices[k] = i;
+                floors[k] = i;
+            }
+            DoubleVector t = position.sub(DoubleVector.fromArray(DOUBLES, floors, 0));
+            DoubleVector t2 = t.mul(t);
+            DoubleVector t3 = t2.mul(t);
+
+            //Cubic Hermite spline between the gathered table points on either side.
+            DoubleVector cdf0 = DoubleVector.fromArray(DOUBLES, cdf, 0, indices, 0);
+            DoubleVector pdf0 = DoubleVector.fromArray(DOUBLES, pdf, 0, indices, 0);
+            DoubleVector cdf1 = DoubleVector.fromArray(DOUBLES, cdf, 1, indices, 0);
+            DoubleVector pdf1 = DoubleVector.fromArray(DOUBLES, pdf, 1, indices, 0);
+            DoubleVector chance = t3.mul(2).sub(t2.mul(3)).add(1).mul(cdf0)
+                    .add(t3.sub(t2.mul(2)).add(t).mul(h).mul(pdf0))
+                    .add(t2.mul(3).sub(t3.mul(2)).mul(cdf1))
+                    .add(t3.sub(t2).mul(h).mul(pdf1));
+
+            //Compare against the uniform draws.
+            VectorMask<Double> wins = DoubleVector.fromArray(DOUBLES, uniforms, j).lt(chance);
+            seats += wins.trueCount();
+            long bits = wins.toLong();
+            for (int k = 0; k < positions.length; k++) {
+                outcomes[j + k] = (int) (bits >>> k) & 1;
+            }
+        }
+
+        //The districts left over past the last full vector.
+        for (; j < n; j++) {
+            int win = uniforms[j] < BatchKernel.standardNormalCDF(offsets[j] + slopes[j] * noise, cdf, pdf) ? 1 : 0;
+            outcomes[j] = win;
+            seats += win;
+        }
+        return seats;
+    }
+}